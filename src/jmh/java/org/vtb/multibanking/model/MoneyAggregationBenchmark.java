@@ -0,0 +1,111 @@
+package org.vtb.multibanking.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ Итоги по валютам и проверка порога квеста на 100 000 транзакций: прежний путь через new BigDecimal на каждое
+ чтение суммы против Money (разбор строки один раз, сложение в long).
+ - bigDecimal: строка суммы разбирается в BigDecimal при каждом чтении, как до Money;
+ - moneyParsed: Money разбирается из строк при каждом вызове - стоимость первого чтения ответа банка;
+ - moneyCached: Money уже закэширован в Amount - повторные чтения (агрегация, квесты, сортировка).
+ Запуск с замером выделения памяти:
+ mvn -Pjmh test-compile exec:exec -Djmh.args="MoneyAggregationBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MoneyAggregationBenchmark {
+
+    private static final String[] CURRENCIES = {"RUB", "USD", "EUR"};
+    private static final BigDecimal QUEST_THRESHOLD = new BigDecimal("5000.00");
+
+    @Param("100000")
+    private int transactions;
+
+    private List<Transaction> cachedTransactions;
+
+    @Setup
+    public void createTransactions() {
+        cachedTransactions = generate(transactions);
+        cachedTransactions.forEach(transaction -> transaction.getAmount().getMoney());
+    }
+
+    @Benchmark
+    public Map<String, BigDecimal> bigDecimal() {
+        Map<String, BigDecimal> totals = new HashMap<>();
+        long questMatches = 0;
+        for (Transaction transaction : cachedTransactions) {
+            Amount amount = transaction.getAmount();
+            BigDecimal value = new BigDecimal(amount.getAmount());
+            totals.merge(amount.getCurrency(), value, BigDecimal::add);
+            if (new BigDecimal(amount.getAmount()).compareTo(QUEST_THRESHOLD) >= 0) {
+                questMatches++;
+            }
+        }
+        totals.put("quests", BigDecimal.valueOf(questMatches));
+        return totals;
+    }
+
+    /* Кэш Amount обходится: каждая сумма разбирается заново */
+    @Benchmark
+    public Map<String, BigDecimal> moneyParsed() {
+        return moneyTotals(cachedTransactions, true);
+    }
+
+    @Benchmark
+    public Map<String, BigDecimal> moneyCached() {
+        return moneyTotals(cachedTransactions, false);
+    }
+
+    private static Map<String, BigDecimal> moneyTotals(List<Transaction> transactions, boolean parse) {
+        Map<String, MoneyTotal> totals = new HashMap<>();
+        long questMatches = 0;
+        for (Transaction transaction : transactions) {
+            Amount amount = transaction.getAmount();
+            Money money = parse ? Money.parse(amount.getAmount(), amount.getCurrency()) : amount.getMoney();
+            totals.computeIfAbsent(money.getCurrency(), currency -> new MoneyTotal()).add(money);
+            if (money.isAtLeast(QUEST_THRESHOLD)) {
+                questMatches++;
+            }
+        }
+        Map<String, BigDecimal> result = new HashMap<>();
+        totals.forEach((currency, total) -> result.put(currency, total.toBigDecimal()));
+        result.put("quests", BigDecimal.valueOf(questMatches));
+        return result;
+    }
+
+    private static List<Transaction> generate(int count) {
+        SplittableRandom random = new SplittableRandom(42);
+        List<Transaction> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long kopecks = random.nextLong(1, 1_000_000);
+            String amount = (kopecks / 100) + "." + String.format("%02d", kopecks % 100);
+            Transaction transaction = new Transaction();
+            transaction.setTransactionId("tx-" + i);
+            transaction.setAmount(new Amount(amount, CURRENCIES[i % CURRENCIES.length]));
+            result.add(transaction);
+        }
+        return result;
+    }
+}
@@ -6,6 +6,8 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.Map;
 
 @Data
@@ -15,11 +17,92 @@ import java.util.Map;
 @ConfigurationProperties(prefix = "bank")
 public class BankConfig {
     private Map<String, BankApiConfig> apis;
+    private HttpConfig http = new HttpConfig();
+    private RegistryConfig registry = new RegistryConfig();
+    private TokenConfig token = new TokenConfig();
+    private ResilienceConfig resilience = new ResilienceConfig();
+    private HedgingConfig hedging = new HedgingConfig();
+    private RateLimitConfig rateLimit = new RateLimitConfig();
+    private RetryConfig retry = new RetryConfig();
 
     @Data
     public static class BankApiConfig {
         private String baseUrl;
         private String clientId;
         private String clientSecret;
+        private int accountFetchConcurrency = 4;
+        private int maxConnections = 20;
+        private Duration connectTimeout = Duration.ofSeconds(5);
+        private Duration readTimeout = Duration.ofSeconds(20);
     }
-}
\ No newline at end of file
+
+    @Data
+    public static class HttpConfig {
+        private int maxTotalConnections = 100;
+        private int maxConnectionsPerHost = 20;
+        private Duration connectTimeout = Duration.ofSeconds(5);
+        private Duration readTimeout = Duration.ofSeconds(20);
+        private Duration connectionRequestTimeout = Duration.ofSeconds(5);
+        private Duration idleTimeout = Duration.ofSeconds(30);
+        private Duration connectionTtl = Duration.ofMinutes(5);
+    }
+
+    @Data
+    public static class RegistryConfig {
+        private long maxUsers = 10_000;
+        private Duration idleTtl = Duration.ofMinutes(30);
+    }
+
+    @Data
+    public static class TokenConfig {
+        private Duration refreshAhead = Duration.ofMinutes(5);
+        private Duration defaultTtl = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class ResilienceConfig {
+        private int slidingWindowSize = 20;
+        private int minimumCalls = 10;
+        private float failureRateThreshold = 50;
+        private float slowCallRateThreshold = 80;
+        private Duration slowCallDuration = Duration.ofSeconds(5);
+        private Duration openDuration = Duration.ofSeconds(30);
+        private int halfOpenCalls = 3;
+        private int maxConcurrentCalls = 50;
+    }
+
+    @Data
+    public static class HedgingConfig {
+        private boolean enabled = false;
+        private double percentile = 0.95;
+        private int minSamples = 50;
+        private Duration minDelay = Duration.ofMillis(50);
+        /* Доля дополнительных запросов к банку сверх основных */
+        private double maxExtraLoad = 0.1;
+        private Duration window = Duration.ofMinutes(1);
+        private int windowSlices = 6;
+        private int workers = 16;
+    }
+
+    @Data
+    public static class RateLimitConfig {
+        /* Лимит по умолчанию для каждой пары (банк, эндпоинт) */
+        private double requestsPerSecond = 20;
+        private double burst = 20;
+        /* Сколько запрос может ждать токен, прежде чем получить отказ */
+        private Duration maxWait = Duration.ofSeconds(2);
+        /* Переопределения requestsPerSecond по имени эндпоинта */
+        private Map<String, Double> endpoints = new HashMap<>();
+    }
+
+    @Data
+    public static class RetryConfig {
+        private int maxAttempts = 3;
+        private Duration initialBackoff = Duration.ofMillis(100);
+        private Duration maxBackoff = Duration.ofSeconds(2);
+        /* Повторов не больше этой доли от успешных вызовов банка, в процентах */
+        private double budgetPercent = 20;
+        /* Запас повторов, доступный до накопления успешных вызовов */
+        private int minRetries = 10;
+    }
+}
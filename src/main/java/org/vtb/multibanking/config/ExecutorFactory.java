@@ -0,0 +1,65 @@
+package org.vtb.multibanking.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/*
+ Пулы для блокирующих запросов к банкам. При spring.threads.virtual.enabled=true на Java 21
+ каждая задача получает свой виртуальный поток, иначе используется фиксированный пул платформенных потоков.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ExecutorFactory {
+
+    private final Environment environment;
+
+    public boolean isVirtualThreadsEnabled() {
+        return Threading.VIRTUAL.isActive(environment);
+    }
+
+    public Executor newExecutor(String name, int poolSize) {
+        if (isVirtualThreadsEnabled()) {
+            log.info("Пул {}: виртуальный поток на задачу", name);
+            return new VirtualThreadTaskExecutor(name + "-");
+        }
+        return newFixedThreadPool(name, poolSize);
+    }
+
+    public Executor newBoundedExecutor(String name, int concurrency) {
+        if (isVirtualThreadsEnabled()) {
+            log.info("Пул {}: виртуальные потоки, не более {} задач одновременно", name, concurrency);
+            Executor virtualExecutor = new VirtualThreadTaskExecutor(name + "-");
+            Semaphore permits = new Semaphore(concurrency);
+            return task -> virtualExecutor.execute(() -> {
+                permits.acquireUninterruptibly();
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+        return newFixedThreadPool(name, concurrency);
+    }
+
+    public static void shutdown(Executor executor) {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        }
+    }
+
+    private static ExecutorService newFixedThreadPool(String name, int poolSize) {
+        return Executors.newFixedThreadPool(poolSize, new CustomizableThreadFactory(name + "-"));
+    }
+}
@@ -7,6 +7,8 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
 import org.vtb.multibanking.service.GOSTBankClient;
+import org.vtb.multibanking.service.bank.BankHttpTransport;
+import org.vtb.multibanking.service.bank.BankTokenManagerFactory;
 
 import java.util.Map;
 
@@ -26,7 +28,7 @@ public class GOSTBankClientConfig {
     }
 
     @Bean
-    public GOSTBankClient gostBankClient() {
-        return new GOSTBankClient(this);
+    public GOSTBankClient gostBankClient(BankHttpTransport bankHttpTransport, BankTokenManagerFactory tokenManagerFactory) {
+        return new GOSTBankClient(this, bankHttpTransport, tokenManagerFactory);
     }
 }
\ No newline at end of file
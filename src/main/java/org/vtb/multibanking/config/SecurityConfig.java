@@ -27,6 +27,7 @@ public class SecurityConfig {
                         .requestMatchers(mvcMatcherBuilder.pattern("/error")).permitAll()
                         .requestMatchers(mvcMatcherBuilder.pattern("/api/**")).permitAll()
                         .requestMatchers(mvcMatcherBuilder.pattern("/login")).permitAll()
+                        .requestMatchers(mvcMatcherBuilder.pattern("/actuator/**")).permitAll()
                         .anyRequest().authenticated()
                 )
                 .build();
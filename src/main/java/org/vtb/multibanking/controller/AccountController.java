@@ -29,7 +29,7 @@ public class AccountController {
             String accountType = (String) requestBody.get("accountType");
             BigDecimal initialBalance = BigDecimal.valueOf(Double.parseDouble((String) requestBody.get("initialBalance")));
 
-            BankClient bankClient = bankService.getBankClient(bankType);
+            BankClient bankClient = bankService.getBankClient(bankType, clientId);
             Account newAccount = bankClient.createAccount(accountType, initialBalance);
 
             return ResponseEntity.ok(newAccount);
@@ -56,7 +56,7 @@ public class AccountController {
             String action = (String) requestBody.get("action");
             String destinationAccountId = (String) requestBody.get("destination_account_id");
 
-            BankClient bankClient = bankService.getBankClient(bankType);
+            BankClient bankClient = bankService.getBankClient(bankType, client_id);
             boolean closeResult = bankClient.closeAccount(accountId, action, destinationAccountId);
 
             if (closeResult) {
@@ -1,46 +1,64 @@
 package org.vtb.multibanking.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.vtb.multibanking.model.AggregationResult;
+import org.vtb.multibanking.model.BankFetchStatus;
 import org.vtb.multibanking.model.BankType;
 import org.vtb.multibanking.model.Transaction;
+import org.vtb.multibanking.model.TransactionCursor;
+import org.vtb.multibanking.model.TransactionPage;
 import org.vtb.multibanking.service.AggregationService;
+import org.vtb.multibanking.service.BulkAggregationService;
+import org.vtb.multibanking.service.TransactionSyncService;
+import org.vtb.multibanking.service.bank.resilience.BankResilienceRegistry;
+import org.vtb.multibanking.service.refresh.ClientRefreshScheduler;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/v1")
 @RequiredArgsConstructor
 @Slf4j
 public class AggregationController {
+    private static final int MAX_TRANSACTIONS_LIMIT = 1000;
+    private static final int DEFAULT_TRANSACTIONS_LIMIT = 50;
+    private static final int STREAM_PAGE_SIZE = 500;
+    private static final String NDJSON = "application/x-ndjson";
+    // Первая загрузка истории клиента ждёт банки дольше обычного срока агрегации
+    private static final Duration FIRST_SYNC_DEADLINE = Duration.ofSeconds(30);
+
     private final AggregationService aggregationService;
-    private String lastClientId;
-    private List<BankType> lastBankTypes;
+    private final BulkAggregationService bulkAggregationService;
+    private final TransactionSyncService transactionSyncService;
+    private final ObjectMapper objectMapper;
+    private final ClientRefreshScheduler clientRefreshScheduler;
+    private final BankResilienceRegistry resilienceRegistry;
     //TODO отделить транзакции на фронте: сейчас общим фронтом
 
     @GetMapping("/aggregate/{clientId}")
     public ResponseEntity<AggregationResult> aggregateAccounts(
             @PathVariable String clientId,
-            @RequestParam(required = false) List<BankType> bankTypes) {
-        this.lastClientId = clientId;
-        this.lastBankTypes = bankTypes;
-
+            @RequestParam(required = false) List<BankType> bankTypes,
+            @RequestParam(required = false) Long deadlineMs) {
         try {
-            AggregationResult aggregationResult;
-            if (bankTypes != null && !bankTypes.isEmpty()) {
-                aggregationResult = aggregationService.aggregateAccounts(clientId, bankTypes);
-            } else {
-                aggregationResult = aggregationService.aggregateAccounts(clientId, List.of());
-            }
+            List<BankType> requestedBankTypes = bankTypes != null && !bankTypes.isEmpty() ? bankTypes : List.of();
+            clientRefreshScheduler.touch(clientId, requestedBankTypes);
+            AggregationResult aggregationResult = aggregationService.getAggregation(clientId, requestedBankTypes,
+                    deadlineMs != null && deadlineMs > 0 ? Duration.ofMillis(deadlineMs) : null);
 
             return ResponseEntity.ok(aggregationResult);
         } catch (Exception e) {
@@ -56,6 +74,7 @@ public class AggregationController {
                     .balanceByBank(Map.of())
                     .balanceByCurrency(Map.of())
                     .accounts(List.of())
+                    .bankStatuses(Map.of())
                     .timestamp(java.time.Instant.now())
                     .build();
 
@@ -63,27 +82,39 @@ public class AggregationController {
         }
     }
 
+    @GetMapping("/banks/health")
+    public ResponseEntity<Map<String, Object>> getBanksHealth() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("banks", resilienceRegistry.getHealth());
+        response.put("timestamp", Instant.now());
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/transactions/{clientId}")
     public ResponseEntity<Map<String, Object>> getAllUserTransactions(
             @PathVariable String clientId,
-            @RequestParam(required = false) List<BankType> bankTypes
+            @RequestParam(required = false) List<BankType> bankTypes,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String before
             ) {
         try {
-            AggregationResult aggregationResult;
-            if (bankTypes != null && !bankTypes.isEmpty()) {
-                aggregationResult = aggregationService.aggregateAccounts(clientId, bankTypes);
+            syncTransactions(clientId, bankTypes);
+
+            // Без limit и before - вся история, как до появления постраничной выдачи
+            TransactionCursor cursor = before != null ? TransactionCursor.parse(before) : null;
+            int pageLimit;
+            if (limit != null) {
+                pageLimit = Math.max(1, Math.min(limit, MAX_TRANSACTIONS_LIMIT));
             } else {
-                aggregationResult = aggregationService.aggregateAccounts(clientId, List.of());
+                pageLimit = cursor != null ? DEFAULT_TRANSACTIONS_LIMIT : Integer.MAX_VALUE;
             }
-
-            List<Transaction> allTransactions = aggregationResult.getAccounts().stream()
-                    .flatMap(acc -> acc.getTransactions().stream())
-                    .sorted((t1, t2) -> t2.getBookingDateTime().compareTo(t1.getBookingDateTime()))
-                    .collect(Collectors.toList());
+            TransactionPage page = transactionSyncService.getTransactionPage(clientId, bankTypes, pageLimit, cursor);
 
             Map<String, Object> response = new HashMap<>();
-            response.put("transactions", allTransactions);
-            response.put("totalCount", allTransactions.size());
+            response.put("transactions", page.getTransactions());
+            response.put("totalCount", transactionSyncService.countTransactions(clientId, bankTypes));
+            response.put("nextCursor", page.getNextCursor());
             response.put("timestamp", Instant.now());
 
             return ResponseEntity.ok(response);
@@ -93,10 +124,124 @@ public class AggregationController {
         }
     }
 
-    @Scheduled(cron = "${app.update.cron:0 */5 * * * *}")
-    public void autoUpdate() {
-        log.info("Автообновление данных...");
-        aggregateAccounts(lastClientId, lastBankTypes);
-        //TODO не забыть добавить автообновление на фронте - бек работает (см. консоль)
+    /*
+    Потоковый режим той же ленты: каждая транзакция пишется отдельной строкой JSON (NDJSON) по мере чтения
+    из хранилища страницами по STREAM_PAGE_SIZE, в памяти держится только текущая страница.
+    limit ограничивает общее число строк (по умолчанию - вся история после курсора before),
+    курсор для следующего запроса - "<bookingDateTime>,<transactionId>" последней строки.
+    Поток обрывается по spring.mvc.async.request-timeout (30м), продолжить можно с курсора последней полученной строки.
+    Образец: curl -H "Accept: application/x-ndjson" "http://localhost:8090/api/v1/transactions/team086-1?limit=200"
+    */
+    @GetMapping(value = "/transactions/{clientId}", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamUserTransactions(
+            @PathVariable String clientId,
+            @RequestParam(required = false) List<BankType> bankTypes,
+            @RequestParam(required = false) Long limit,
+            @RequestParam(required = false) String before
+    ) {
+        TransactionCursor cursor;
+        try {
+            cursor = before != null ? TransactionCursor.parse(before) : null;
+            syncTransactions(clientId, bankTypes);
+        } catch (Exception e) {
+            log.error("Ошибка получения всех транзакций: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+
+        long maxCount = limit != null && limit > 0 ? limit : Long.MAX_VALUE;
+        StreamingResponseBody body = out -> {
+            long written = 0;
+            TransactionCursor pageCursor = cursor;
+            while (written < maxCount) {
+                int pageSize = (int) Math.min(STREAM_PAGE_SIZE, maxCount - written);
+                TransactionPage page = transactionSyncService.getTransactionPage(clientId, bankTypes, pageSize, pageCursor);
+                for (Transaction transaction : page.getTransactions()) {
+                    out.write(objectMapper.writeValueAsBytes(transaction));
+                    out.write('\n');
+                }
+                out.flush();
+                written += page.getTransactions().size();
+                if (page.getNextCursor() == null) {
+                    break;
+                }
+                pageCursor = TransactionCursor.parse(page.getNextCursor());
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
+    }
+
+    /*
+    Транзакции отдаются из локального хранилища; у банков они подгружаются при агрегации и автообновлении.
+    Клиент, который читает только ленту, тоже ставится на автообновление, а банки, ещё ни разу не загруженные
+    (не запрошенные раньше или не ответившие при первой загрузке), загружаются перед чтением.
+    */
+    private void syncTransactions(String clientId, List<BankType> bankTypes) {
+        List<BankType> requestedBankTypes = bankTypes != null && !bankTypes.isEmpty() ? bankTypes : List.of();
+        clientRefreshScheduler.touch(clientId, requestedBankTypes);
+
+        List<BankType> unsyncedBanks = transactionSyncService.getUnsyncedBanks(clientId, requestedBankTypes);
+        if (unsyncedBanks.isEmpty()) {
+            return;
+        }
+        AggregationResult result = aggregationService.aggregateAccounts(clientId, unsyncedBanks, FIRST_SYNC_DEADLINE);
+        result.getBankStatuses().forEach((bankType, status) -> {
+            if (status.getStatus() == BankFetchStatus.COMPLETE) {
+                transactionSyncService.markBankSynced(bankType, clientId);
+            }
+        });
+    }
+
+    /*
+    Пакетная агрегация для фоновых задач: тело {"clientIds": [...], "bankTypes": [...]}, bankTypes необязателен.
+    Результат по каждому клиенту пишется отдельной строкой JSON (NDJSON) по мере готовности, порядок строк не совпадает с порядком clientIds.
+    Пакет ограничен app.aggregation.bulk.batch-timeout (25 минут), что меньше spring.mvc.async.request-timeout (30 минут):
+    клиенты, не обработанные к этому сроку, получают строку с success=false и error, и ответ завершается штатно.
+    Образец: curl -X POST -H "Content-Type: application/json" -d '{"clientIds":["team086-1","team086-2"]}' http://localhost:8090/api/v1/aggregate/bulk
+    */
+    @PostMapping(value = "/aggregate/bulk", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> aggregateBulk(@RequestBody Map<String, Object> requestBody) {
+        List<String> clientIds;
+        List<BankType> bankTypes;
+        try {
+            clientIds = ((List<?>) requestBody.get("clientIds")).stream()
+                    .map(Object::toString)
+                    .toList();
+            Object requestedBankTypes = requestBody.get("bankTypes");
+            bankTypes = requestedBankTypes != null
+                    ? ((List<?>) requestedBankTypes).stream()
+                            .map(type -> BankType.valueOf(type.toString().toUpperCase(Locale.ROOT)))
+                            .toList()
+                    : List.of();
+        } catch (Exception e) {
+            log.error("Некорректный запрос пакетной агрегации: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+        if (clientIds.isEmpty() || clientIds.size() > bulkAggregationService.getMaxClients()) {
+            log.error("Некорректное число клиентов в пакетной агрегации: {}", clientIds.size());
+            return ResponseEntity.badRequest().build();
+        }
+
+        StreamingResponseBody body = out -> {
+            try {
+                bulkAggregationService.aggregate(clientIds, bankTypes, result -> {
+                    try {
+                        out.write(objectMapper.writeValueAsBytes(result));
+                        out.write('\n');
+                        out.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
     }
 }
@@ -4,9 +4,11 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.vtb.multibanking.model.BankAggregationStatus;
 import org.vtb.multibanking.model.BankType;
 import org.vtb.multibanking.model.Card;
-import org.vtb.multibanking.service.bank.BankService;
+import org.vtb.multibanking.service.CardService;
+import org.vtb.multibanking.service.bank.BankFanOutResult;
 
 import java.util.*;
 
@@ -16,23 +18,25 @@ import java.util.*;
 @RequiredArgsConstructor
 public class CardController {
 
-    private final BankService bankService;
+    private final CardService cardService;
 
     @GetMapping("/{clientId}")
     public ResponseEntity<Map<String, Object>> getCards(
             @PathVariable String clientId,
             @RequestParam(required = false) String bankType,
             @RequestParam(required = false) String cardType,
-            @RequestParam(required = false) String status
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "false") boolean refresh
     ) {
         try {
             List<Card> allCards = new ArrayList<>();
+            BankFanOutResult<List<Card>> fanOut = null;
 
             if (bankType != null && !bankType.isEmpty()) {
                 try {
                     BankType type = BankType.valueOf(bankType.toUpperCase());
-                    List<Card> bankCards = bankService.getBankClient(type).getCards();
-                    allCards.addAll(processCards(bankCards));
+                    List<Card> bankCards = cardService.getCards(type, clientId, refresh);
+                    allCards.addAll(bankCards);
                 } catch (IllegalArgumentException e) {
                     log.warn("Неверный тип банка: {}", bankType);
                     return ResponseEntity.badRequest().body(Map.of(
@@ -41,14 +45,8 @@ public class CardController {
                     ));
                 }
             } else {
-                for (BankType type : BankType.values()) {
-                    try {
-                        List<Card> bankCards = bankService.getBankClient(type).getCards();
-                        allCards.addAll(processCards(bankCards));
-                    } catch (Exception e) {
-                        log.warn("Не удалось получить карты банка {}: {}", type, e.getMessage());
-                    }
-                }
+                fanOut = cardService.getAllCards(clientId, refresh);
+                allCards.addAll(fanOut.merge(cards -> cards));
             }
 
             // Фильтрация по типу карты
@@ -71,6 +69,10 @@ public class CardController {
             response.put("client", clientId);
             response.put("count", allCards.size());
             response.put("timestamp", new Date());
+            if (fanOut != null) {
+                response.put("bankStatuses", fanOut.bankStatuses());
+                response.put("partial", fanOut.partial());
+            }
 
             return ResponseEntity.ok(response);
 
@@ -86,37 +88,21 @@ public class CardController {
     @GetMapping("/{clientId}/{cardId}")
     public ResponseEntity<Map<String, Object>> getCardDetails(
             @PathVariable String clientId,
-            @PathVariable String cardId
+            @PathVariable String cardId,
+            @RequestParam(defaultValue = "false") boolean refresh
     ) {
         try {
-            Card card = null;
-            BankType foundBankType = null;
-
-            for (BankType bankType : BankType.values()) {
-                try {
-                    List<Card> bankCards = bankService.getBankClient(bankType).getCards();
-                    Optional<Card> foundCard = bankCards.stream()
-                            .filter(c -> cardId.equals(c.getCardId()))
-                            .findFirst();
+            Optional<Map.Entry<BankType, Card>> found = cardService.findCard(clientId, cardId, refresh);
 
-                    if (foundCard.isPresent()) {
-                        card = foundCard.get();
-                        foundBankType = bankType;
-                        break;
-                    }
-                } catch (Exception e) {
-                    log.warn("Не удалось получить карты банка {}: {}", bankType, e.getMessage());
-                }
-            }
-
-            if (card == null) {
+            if (found.isEmpty()) {
                 return ResponseEntity.badRequest().body(Map.of(
                         "success", false,
                         "error", "Карта не найдена"
                 ));
             }
 
-            card = processCard(card);
+            Card card = found.get().getValue();
+            BankType foundBankType = found.get().getKey();
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -153,7 +139,7 @@ public class CardController {
                 ));
             }
 
-            Card newCard = bankService.getBankClient(bankType).createCard(accountNumber, cardType, cardName);
+            Card newCard = cardService.createCard(bankType, clientId, accountNumber, cardType, cardName);
 
             if (newCard == null) {
                 return ResponseEntity.badRequest().body(Map.of(
@@ -162,8 +148,6 @@ public class CardController {
                 ));
             }
 
-            newCard = processCard(newCard);
-
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "Карта успешно выпущена");
@@ -197,22 +181,11 @@ public class CardController {
             boolean success = false;
             BankType foundBankType = null;
 
-            // Ищем карту во всех банках и удаляем
-            for (BankType bankType : BankType.values()) {
-                try {
-                    List<Card> bankCards = bankService.getBankClient(bankType).getCards();
-                    Optional<Card> foundCard = bankCards.stream()
-                            .filter(c -> cardId.equals(c.getCardId()))
-                            .findFirst();
-
-                    if (foundCard.isPresent()) {
-                        success = bankService.getBankClient(bankType).deleteCard(cardId);
-                        foundBankType = bankType;
-                        break;
-                    }
-                } catch (Exception e) {
-                    log.warn("Не удалось получить карты банка {}: {}", bankType, e.getMessage());
-                }
+            // Ищем карту во всех банках (сначала в кэше) и удаляем в найденном
+            Optional<Map.Entry<BankType, Card>> found = cardService.findCard(clientId, cardId, false);
+            if (found.isPresent()) {
+                foundBankType = found.get().getKey();
+                success = cardService.deleteCard(foundBankType, clientId, cardId);
             }
 
             Map<String, Object> response = new HashMap<>();
@@ -238,27 +211,4 @@ public class CardController {
             ));
         }
     }
-
-    private List<Card> processCards(List<Card> cards) {
-        if (cards == null) return new ArrayList<>();
-
-        return cards.stream()
-                .map(this::processCard)
-                .filter(Objects::nonNull)
-                .toList();
-    }
-
-    private Card processCard(Card card) {
-        if (card == null) return null;
-
-        if (card.getCardId() == null) card.setCardId("unknown");
-        if (card.getCardNumber() == null) card.setCardNumber("N/A");
-        if (card.getCardName() == null) card.setCardName("Безымянная карта");
-        if (card.getCardType() == null) card.setCardType("debit");
-        if (card.getStatus() == null) card.setStatus("unknown");
-        if (card.getAccountNumber() == null) card.setAccountNumber("N/A");
-        if (card.getBankType() == null) card.setBankType(BankType.VBANK);
-
-        return card;
-    }
-}
\ No newline at end of file
+}
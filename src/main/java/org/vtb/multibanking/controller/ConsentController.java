@@ -0,0 +1,65 @@
+package org.vtb.multibanking.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.vtb.multibanking.model.BankType;
+import org.vtb.multibanking.service.bank.BankService;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/api/v1/consents")
+@RequiredArgsConstructor
+@Slf4j
+public class ConsentController {
+
+    private static final int MAX_WAIT_SECONDS = 60;
+
+    private final BankService bankService;
+
+    /*
+    Статус согласия без блокировки потока запроса: при waitSeconds=0 сразу возвращается approved или pending,
+    иначе ответ отправляется при одобрении, но не позже чем через waitSeconds.
+    Образец: curl http://localhost:8090/api/v1/consents/team086-1/VBANK?waitSeconds=30
+    */
+    @GetMapping("/{clientId}/{bankType}")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getConsentStatus(
+            @PathVariable String clientId,
+            @PathVariable BankType bankType,
+            @RequestParam(defaultValue = "0") int waitSeconds) {
+        CompletableFuture<String> approval = bankService.getBankClient(bankType, clientId).awaitConsentApproval();
+
+        Map<String, Object> pending = new HashMap<>();
+        pending.put("bankType", bankType);
+        pending.put("status", "pending");
+
+        if (waitSeconds <= 0 && !approval.isDone()) {
+            return CompletableFuture.completedFuture(ResponseEntity.accepted().body(pending));
+        }
+
+        return approval
+                .thenApply(consentId -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("bankType", bankType);
+                    response.put("status", "approved");
+                    response.put("consentId", consentId);
+                    return ResponseEntity.ok(response);
+                })
+                .completeOnTimeout(ResponseEntity.accepted().body(pending), Math.min(waitSeconds, MAX_WAIT_SECONDS), TimeUnit.SECONDS)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    log.error("Ошибка получения согласия для банка {}: {}", bankType, cause.getMessage());
+                    Map<String, Object> error = new HashMap<>();
+                    error.put("bankType", bankType);
+                    error.put("status", "error");
+                    error.put("message", cause.getMessage());
+                    return ResponseEntity.badRequest().body(error);
+                });
+    }
+}
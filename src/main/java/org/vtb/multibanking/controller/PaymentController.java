@@ -46,7 +46,7 @@ public class PaymentController {
                     amountMap.get("currency")
             );
 
-            BankClient bankClient = bankService.getBankClient(bankTypeFrom);
+            BankClient bankClient = bankService.getBankClient(bankTypeFrom, client_id);
 
             String paymentId = bankClient.createPayment(fromAccount, toAccount, amount, bankTypeTo);
 
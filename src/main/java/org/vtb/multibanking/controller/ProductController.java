@@ -7,7 +7,13 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 import org.vtb.multibanking.model.BankType;
 import org.vtb.multibanking.model.Product;
+import org.vtb.multibanking.service.bank.BankClient;
+import org.vtb.multibanking.service.bank.BankFanOutResult;
+import org.vtb.multibanking.service.bank.BankFanOutService;
 import org.vtb.multibanking.service.bank.BankService;
+import org.vtb.multibanking.service.catalog.ProductCatalog;
+import org.vtb.multibanking.service.catalog.ProductCatalogService;
+import org.vtb.multibanking.service.catalog.ProductSortOrder;
 
 import java.math.BigDecimal;
 import java.util.*;
@@ -20,6 +26,8 @@ import java.util.stream.Collectors;
 public class ProductController {
 
     private final BankService bankService;
+    private final BankFanOutService bankFanOutService;
+    private final ProductCatalogService productCatalogService;
 
     @GetMapping("/catalog")
     public ResponseEntity<Map<String, Object>> getProductsCatalog(
@@ -28,38 +36,15 @@ public class ProductController {
             @RequestParam(required = false) String sortBy
     ) {
        try {
-           List<Product> allProducts = new ArrayList<>();
-
-           for (BankType type: BankType.values()) {
-               try {
-                   var bankClient = bankService.getBankClient(type);
-                   List<Product> bankProducts = bankClient.getProductsCatalog();
-                   allProducts.addAll(bankProducts);
-               } catch (Exception e) {
-                   log.warn("Не удалось получить продукты банка {}: {}", type, e.getMessage());
-               }
-           }
-
-           if (bankType != null && !bankType.isEmpty()) {
-               allProducts = allProducts.stream()
-                       .filter(product -> product.getBankType().name().equalsIgnoreCase(bankType))
-                       .collect(Collectors.toList());
-           }
-
-           if (productType != null && !productType.isEmpty()) {
-               allProducts = allProducts.stream()
-                       .filter(product -> product.getProductType().equalsIgnoreCase(productType))
-                       .collect(Collectors.toList());
-           }
-
-           if (sortBy != null && !sortBy.isEmpty()) {
-               allProducts = sortProducts(allProducts, sortBy);
-           }
+           ProductCatalog catalog = productCatalogService.getCatalog();
+           List<Product> products = catalog.find(bankType, productType, sortBy);
 
            Map<String, Object> response = new HashMap<>();
            response.put("success", true);
-           response.put("products", allProducts);
-           response.put("count", allProducts.size());
+           response.put("products", products);
+           response.put("count", products.size());
+           response.put("bankStatuses", catalog.getBankStatuses());
+           response.put("refreshedAt", catalog.getRefreshedAt());
            response.put("timestamp", new Date());
 
            return ResponseEntity.ok(response);
@@ -82,22 +67,23 @@ public class ProductController {
             @RequestParam(required = false) String sortBy
     ) {
         try {
-            List<Product> clientProducts = new ArrayList<>();
-            for (BankType type: BankType.values()) {
+            // Опрашиваются только запрошенные банки: иначе partial учитывал бы банки, о которых не спрашивали
+            List<BankType> bankTypes = BankFanOutService.allBanks();
+            if (bankType != null && !bankType.isEmpty()) {
                 try {
-                    var bankClient = bankService.getBankClient(type);
-                    List<Product> bankProducts = bankClient.getUserProductList();
-                    clientProducts.addAll(bankProducts);
-                } catch (Exception e) {
-                    log.warn("Не удалось получить продукты банка {}: {}", type, e.getMessage());
+                    bankTypes = List.of(BankType.valueOf(bankType.toUpperCase()));
+                } catch (IllegalArgumentException e) {
+                    log.warn("Неверный тип банка: {}", bankType);
+                    return ResponseEntity.badRequest().body(Map.of(
+                            "success", false,
+                            "error", "Неверный тип банка: " + bankType
+                    ));
                 }
             }
 
-            if (bankType != null && !bankType.isEmpty()) {
-                clientProducts = clientProducts.stream()
-                        .filter(product -> product.getBankType().name().equalsIgnoreCase(bankType))
-                        .collect(Collectors.toList());
-            }
+            BankFanOutResult<List<Product>> fanOut = bankFanOutService.fanOutAsync(clientId, bankTypes,
+                    BankClient::getUserProductListAsync);
+            List<Product> clientProducts = new ArrayList<>(fanOut.merge(products -> products));
 
             if (productType != null && !productType.isEmpty()) {
                 clientProducts = clientProducts.stream()
@@ -120,6 +106,8 @@ public class ProductController {
             response.put("products", clientProducts);
             response.put("client", clientId);
             response.put("count", clientProducts.size());
+            response.put("bankStatuses", fanOut.bankStatuses());
+            response.put("partial", fanOut.partial());
             response.put("timestamp", new Date());
 
             return ResponseEntity.ok(response);
@@ -146,7 +134,7 @@ public class ProductController {
         try {
 
             BankType bankType = BankType.valueOf((String) requestBody.get("bankType"));
-            var bankClient = bankService.getBankClient(bankType);
+            var bankClient = bankService.getBankClient(bankType, clientId);
 
             String productId = (String) requestBody.get("productId");
             BigDecimal amount = BigDecimal.valueOf(Double.parseDouble((String) requestBody.get("amount")));
@@ -198,7 +186,7 @@ public class ProductController {
     ) {
         try {
             BankType bankType = BankType.valueOf((String) requestBody.get("bankType"));
-            var bankClient = bankService.getBankClient(bankType);
+            var bankClient = bankService.getBankClient(bankType, clientId);
 
             String agreementId = (String) requestBody.get("agreementId");
             String repaymentAccountId = (String) requestBody.get("repaymentAccountId");
@@ -239,34 +227,9 @@ public class ProductController {
     }
 
     private List<Product> sortProducts(List<Product> products, String sortBy) {
-        return switch (sortBy) {
-            case "interest_desc" -> products.stream()
-                    .sorted((p1, p2) -> compareInterestRates(p2, p1))
-                    .collect(Collectors.toList());
-            case "interest_asc" -> products.stream()
-                    .sorted(this::compareInterestRates)
-                    .collect(Collectors.toList());
-            case "name_desc" -> products.stream()
-                    .sorted(Comparator.comparing(Product::getProductName).reversed())
-                    .collect(Collectors.toList());
-            case "name_asc" -> products.stream()
-                    .sorted(Comparator.comparing(Product::getProductName))
-                    .collect(Collectors.toList());
-            case "bank" -> products.stream()
-                    .sorted(Comparator.comparing(product -> product.getBankType().name()))
-                    .collect(Collectors.toList());
-            default -> products;
-        };
-    }
-
-    private int compareInterestRates(Product p1, Product p2) {
-        try {
-            double rate1 = p1.getInterestRate() != null ? Double.parseDouble(p1.getInterestRate()) : 0;
-            double rate2 = p2.getInterestRate() != null ? Double.parseDouble(p2.getInterestRate()) : 0;
-            return Double.compare(rate1, rate2);
-        } catch (NumberFormatException e) {
-            return 0;
-        }
+        return ProductSortOrder.fromKey(sortBy)
+                .map(order -> order.sort(products))
+                .orElse(products);
     }
 
 }
@@ -0,0 +1,31 @@
+package org.vtb.multibanking.entity;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.vtb.multibanking.model.BankType;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Document(collection = "active_clients")
+public class ActiveClientEntity {
+
+    /* clientId:BANK1,BANK2 */
+    @Id
+    private String id;
+
+    @Field("client_id")
+    private String clientId;
+
+    @Field("bank_types")
+    private List<BankType> bankTypes;
+
+    /* Клиент без обращений дольше суток выпадает из фонового обновления */
+    @Indexed(expireAfterSeconds = 86400)
+    @Field("last_access")
+    private Instant lastAccess;
+}
@@ -0,0 +1,25 @@
+package org.vtb.multibanking.entity;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.Instant;
+
+@Data
+@Document(collection = "cluster_nodes")
+public class ClusterNodeEntity {
+
+    @Id
+    private String nodeId;
+
+    /* Узел, переставший обновлять heartbeat, удаляется из коллекции TTL-индексом */
+    @Indexed(expireAfterSeconds = 300)
+    @Field("last_heartbeat")
+    private Instant lastHeartbeat;
+
+    @Field("started_at")
+    private Instant startedAt;
+}
@@ -0,0 +1,61 @@
+package org.vtb.multibanking.entity;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.vtb.multibanking.model.BankType;
+
+import java.time.Instant;
+
+@Data
+@Document(collection = "transactions")
+@CompoundIndexes({
+        @CompoundIndex(name = "bank_account_transaction", def = "{'bank_type': 1, 'account_id': 1, 'transaction_id': 1}", unique = true),
+        @CompoundIndex(name = "client_booking", def = "{'client_id': 1, 'booking_date_time': -1}"),
+        @CompoundIndex(name = "account_feed", def = "{'bank_type': 1, 'account_id': 1, 'booking_date_time': -1, 'transaction_id': -1}")
+})
+public class TransactionEntity {
+
+    /* bankType:accountId:transactionId - повторная загрузка той же транзакции перезаписывает документ */
+    @Id
+    private String id;
+
+    @Field("bank_type")
+    private BankType bankType;
+
+    @Field("client_id")
+    private String clientId;
+
+    @Field("account_id")
+    private String accountId;
+
+    @Field("transaction_id")
+    private String transactionId;
+
+    private String amount;
+
+    private String currency;
+
+    @Field("credit_debit_indicator")
+    private String creditDebitIndicator;
+
+    private String status;
+
+    @Field("booking_date_time")
+    private Instant bookingDateTime;
+
+    @Field("value_date_time")
+    private Instant valueDateTime;
+
+    @Field("transaction_information")
+    private String transactionInformation;
+
+    @Field("bank_transaction_code")
+    private String bankTransactionCode;
+
+    @Field("synced_at")
+    private Instant syncedAt;
+}
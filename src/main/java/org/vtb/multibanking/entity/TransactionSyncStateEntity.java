@@ -0,0 +1,35 @@
+package org.vtb.multibanking.entity;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.vtb.multibanking.model.BankType;
+
+import java.time.Instant;
+
+@Data
+@Document(collection = "transaction_sync_state")
+public class TransactionSyncStateEntity {
+
+    /* bankType:clientId:accountId; отметка о загрузке банка целиком - bankType:clientId:null */
+    @Id
+    private String id;
+
+    @Field("bank_type")
+    private BankType bankType;
+
+    @Indexed
+    @Field("client_id")
+    private String clientId;
+
+    @Field("account_id")
+    private String accountId;
+
+    /* Самая поздняя bookingDateTime среди сохранённых транзакций счёта */
+    private Instant watermark;
+
+    @Field("last_synced_at")
+    private Instant lastSyncedAt;
+}
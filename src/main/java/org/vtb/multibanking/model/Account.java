@@ -1,8 +1,11 @@
 package org.vtb.multibanking.model;
 
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.math.BigDecimal;
 import java.time.Instant;
@@ -10,7 +13,6 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Data
-@AllArgsConstructor
 @NoArgsConstructor
 public class Account {
     private String accountId;
@@ -27,6 +29,57 @@ public class Account {
     private BigDecimal availableBalance;
     private Instant lastUpdated;
     private List<Transaction> transactions = new ArrayList<>();
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private List<String> fetchErrors = new ArrayList<>();
+
+    /*
+     Балансы как Money для агрегации; для счетов из JSON-снимка считаются из BigDecimal при первом обращении.
+     Money хранит сумму точно, поэтому setCurrentMoney и setAvailableMoney не меняют значение баланса
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient Money currentMoney;
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient Money availableMoney;
+
+    public void setCurrentBalance(BigDecimal currentBalance) {
+        this.currentBalance = currentBalance;
+        this.currentMoney = null;
+    }
+
+    public void setAvailableBalance(BigDecimal availableBalance) {
+        this.availableBalance = availableBalance;
+        this.availableMoney = null;
+    }
+
+    @JsonIgnore
+    public void setCurrentMoney(Money balance) {
+        this.currentBalance = balance.toBigDecimal();
+        this.currentMoney = balance;
+    }
+
+    @JsonIgnore
+    public void setAvailableMoney(Money balance) {
+        this.availableBalance = balance.toBigDecimal();
+        this.availableMoney = balance;
+    }
+
+    @JsonIgnore
+    public Money getCurrentMoney() {
+        if (currentMoney == null && currentBalance != null) {
+            currentMoney = Money.of(currentBalance, currency);
+        }
+        return currentMoney;
+    }
+
+    @JsonIgnore
+    public Money getAvailableMoney() {
+        if (availableMoney == null && availableBalance != null) {
+            availableMoney = Money.of(availableBalance, currency);
+        }
+        return availableMoney;
+    }
 
     public boolean isActive() {
         return "Enabled".equalsIgnoreCase(status);
@@ -1,7 +1,10 @@
 package org.vtb.multibanking.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.Builder;
+import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.Instant;
@@ -10,6 +13,8 @@ import java.util.Map;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class AggregationResult {
     private boolean success;
     private String clientId;
@@ -20,5 +25,10 @@ public class AggregationResult {
     private Map<BankType, BigDecimal> balanceByBank;
     private Map<String, BigDecimal> balanceByCurrency;
     private List<Account> accounts;
+    private Map<BankType, BankAggregationStatus> bankStatuses;
+    /* true, если хотя бы один банк не ответил вовремя или с ошибкой */
+    private boolean partial;
     private Instant timestamp;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String error;
 }
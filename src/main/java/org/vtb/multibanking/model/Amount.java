@@ -1,19 +1,55 @@
 package org.vtb.multibanking.model;
 
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.math.BigDecimal;
 
 @Data
-@AllArgsConstructor
 @NoArgsConstructor
 public class Amount {
     private String amount;
     private String currency;
 
+    /* Разобранная сумма: считается один раз и сбрасывается при изменении строки или валюты */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient Money money;
+
+    public Amount(String amount, String currency) {
+        this.amount = amount;
+        this.currency = currency;
+    }
+
+    public Amount(Money money) {
+        this.amount = money.toBigDecimal().toPlainString();
+        this.currency = money.getCurrency();
+        this.money = money;
+    }
+
+    public void setAmount(String amount) {
+        this.amount = amount;
+        this.money = null;
+    }
+
+    public void setCurrency(String currency) {
+        this.currency = currency;
+        this.money = null;
+    }
+
+    @JsonIgnore
+    public Money getMoney() {
+        if (money == null) {
+            money = Money.parse(amount, currency);
+        }
+        return money;
+    }
+
+    @JsonIgnore
     public BigDecimal getAmountValue() {
-        return new BigDecimal(amount);
+        return getMoney().toBigDecimal();
     }
-}
\ No newline at end of file
+}
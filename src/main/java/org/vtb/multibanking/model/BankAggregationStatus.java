@@ -0,0 +1,23 @@
+package org.vtb.multibanking.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BankAggregationStatus {
+    private BankFetchStatus status;
+    private long latencyMs;
+    private String error;
+    /* Заполнено, если вместо ответа банка отданы данные последней успешной агрегации */
+    private Instant snapshotAt;
+    private CircuitState circuitState;
+}
@@ -0,0 +1,9 @@
+package org.vtb.multibanking.model;
+
+public enum BankFetchStatus {
+    COMPLETE,
+    TIMED_OUT,
+    FAILED,
+    /* Запрос не отправлялся: цепь банка разомкнута или превышен лимит одновременных запросов */
+    UNAVAILABLE
+}
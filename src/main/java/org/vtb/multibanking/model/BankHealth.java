@@ -0,0 +1,19 @@
+package org.vtb.multibanking.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BankHealth {
+    private CircuitState state;
+    /* Доли ошибок и медленных вызовов в окне последних запросов, в процентах */
+    private float failureRate;
+    private float slowCallRate;
+    private int activeCalls;
+    private int maxConcurrentCalls;
+}
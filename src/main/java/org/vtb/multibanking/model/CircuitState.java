@@ -0,0 +1,7 @@
+package org.vtb.multibanking.model;
+
+public enum CircuitState {
+    CLOSED,
+    HALF_OPEN,
+    OPEN
+}
@@ -0,0 +1,224 @@
+package org.vtb.multibanking.model;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ Денежная сумма как long без масштаба, число знаков после запятой и код валюты.
+ Число знаков - не меньше принятого для валюты (RUB 2, JPY 0, BHD 3; неизвестная валюта - 2).
+ Сумма банка точнее валюты (100.005 RUB) не округляется: масштаб суммы увеличивается, и она хранится точно.
+ Строка банка разбирается один раз при чтении ответа, дальше суммы складываются и сравниваются как long.
+ Переполнение - ArithmeticException, а не тихое искажение или округление суммы.
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final int DEFAULT_SCALE = 2;
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L,
+            10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L, 10_000_000_000_000L, 100_000_000_000_000L,
+            1_000_000_000_000_000L, 10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L
+    };
+    private static final Map<String, Integer> SCALE_BY_CURRENCY = new ConcurrentHashMap<>();
+
+    private final long unscaled;
+    private final int scale;
+    private final String currency;
+
+    private Money(long unscaled, int scale, String currency) {
+        this.unscaled = unscaled;
+        this.scale = scale;
+        this.currency = currency;
+    }
+
+    /* minorUnits - в минимальных единицах валюты: копейках для RUB, иенах для JPY */
+    public static Money ofMinor(long minorUnits, String currency) {
+        return new Money(minorUnits, scaleOf(currency), currency);
+    }
+
+    public static Money zero(String currency) {
+        return ofMinor(0, currency);
+    }
+
+    public static Money of(BigDecimal amount, String currency) {
+        int currencyScale = scaleOf(currency);
+        BigDecimal stripped = amount.stripTrailingZeros();
+        int scale = Math.max(currencyScale, stripped.scale());
+        if (scale >= POWERS_OF_TEN.length) {
+            throw new ArithmeticException("Слишком много знаков после запятой: " + amount.toPlainString());
+        }
+        // Масштаб только растёт, поэтому setScale точен и округления нет
+        return new Money(stripped.setScale(scale).unscaledValue().longValueExact(), scale, currency);
+    }
+
+    /* "1234.5", "-10", "+0.07" разбираются без BigDecimal; остальное (экспонента, знаков больше, чем у валюты) - через него */
+    public static Money parse(String amount, String currency) {
+        if (amount == null) {
+            throw new NumberFormatException("Сумма не указана");
+        }
+        int scale = scaleOf(currency);
+        long parsed = parseUnscaled(amount, scale);
+        if (parsed == Long.MIN_VALUE) {
+            return of(new BigDecimal(amount.trim()), currency);
+        }
+        return new Money(parsed, scale, currency);
+    }
+
+    /* Принятое число знаков после запятой для ISO-кода валюты */
+    public static int scaleOf(String currency) {
+        if (currency == null) {
+            return DEFAULT_SCALE;
+        }
+        return SCALE_BY_CURRENCY.computeIfAbsent(currency, code -> {
+            try {
+                int digits = Currency.getInstance(code).getDefaultFractionDigits();
+                return digits >= 0 ? digits : DEFAULT_SCALE;
+            } catch (IllegalArgumentException e) {
+                return DEFAULT_SCALE;
+            }
+        });
+    }
+
+    public long getUnscaled() {
+        return unscaled;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public boolean isZero() {
+        return unscaled == 0;
+    }
+
+    public Money plus(Money other) {
+        requireSameCurrency(other);
+        int resultScale = Math.max(scale, other.scale);
+        long sum = Math.addExact(rescale(unscaled, scale, resultScale), rescale(other.unscaled, other.scale, resultScale));
+        return normalized(sum, resultScale, currency);
+    }
+
+    /*
+     Сравнение с порогом без округления ни порога, ни суммы. BigDecimal суммы не покидает метод,
+     и JIT убирает его выделение; сравнение двух компактных BigDecimal с одним масштабом - сравнение long
+     */
+    public boolean isAtLeast(BigDecimal threshold) {
+        return BigDecimal.valueOf(unscaled, scale).compareTo(threshold) >= 0;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        requireSameCurrency(other);
+        if (scale == other.scale) {
+            return Long.compare(unscaled, other.unscaled);
+        }
+        int commonScale = Math.max(scale, other.scale);
+        try {
+            return Long.compare(rescale(unscaled, scale, commonScale), rescale(other.unscaled, other.scale, commonScale));
+        } catch (ArithmeticException e) {
+            return toBigDecimal().compareTo(other.toBigDecimal());
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Money other)) {
+            return false;
+        }
+        return unscaled == other.unscaled && scale == other.scale && Objects.equals(currency, other.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Long.hashCode(unscaled) + scale) + Objects.hashCode(currency);
+    }
+
+    @Override
+    public String toString() {
+        return currency != null ? toBigDecimal().toPlainString() + " " + currency : toBigDecimal().toPlainString();
+    }
+
+    /* Значение unscaled с масштабом from в масштабе to >= from; переполнение - ArithmeticException */
+    static long rescale(long unscaled, int from, int to) {
+        return from == to ? unscaled : Math.multiplyExact(unscaled, POWERS_OF_TEN[to - from]);
+    }
+
+    /* Лишние нули после запятой сверх масштаба валюты убираются, чтобы одна сумма имела одно представление */
+    private static Money normalized(long unscaled, int scale, String currency) {
+        int currencyScale = scaleOf(currency);
+        while (scale > currencyScale && unscaled % 10 == 0) {
+            unscaled /= 10;
+            scale--;
+        }
+        return new Money(unscaled, scale, currency);
+    }
+
+    private void requireSameCurrency(Money other) {
+        if (!Objects.equals(currency, other.currency)) {
+            throw new IllegalArgumentException("Разные валюты: " + currency + " и " + other.currency);
+        }
+    }
+
+    /* Long.MIN_VALUE - строка не подходит под быстрый разбор */
+    private static long parseUnscaled(String amount, int scale) {
+        if (scale >= POWERS_OF_TEN.length) {
+            return Long.MIN_VALUE;
+        }
+        long maxWholeUnits = Long.MAX_VALUE / POWERS_OF_TEN[scale];
+        int length = amount.length();
+        int i = 0;
+        boolean negative = false;
+        if (i < length && (amount.charAt(i) == '-' || amount.charAt(i) == '+')) {
+            negative = amount.charAt(i) == '-';
+            i++;
+        }
+
+        long whole = 0;
+        int wholeDigits = 0;
+        while (i < length && isDigit(amount.charAt(i))) {
+            if (whole > maxWholeUnits / 10) {
+                return Long.MIN_VALUE;
+            }
+            whole = whole * 10 + (amount.charAt(i) - '0');
+            wholeDigits++;
+            i++;
+        }
+
+        long fraction = 0;
+        int fractionDigits = 0;
+        if (i < length && amount.charAt(i) == '.') {
+            i++;
+            while (i < length && isDigit(amount.charAt(i))) {
+                if (fractionDigits == scale) {
+                    return Long.MIN_VALUE;
+                }
+                fraction = fraction * 10 + (amount.charAt(i) - '0');
+                fractionDigits++;
+                i++;
+            }
+        }
+
+        if (i != length || wholeDigits + fractionDigits == 0 || whole >= maxWholeUnits) {
+            return Long.MIN_VALUE;
+        }
+        long value = whole * POWERS_OF_TEN[scale] + fraction * POWERS_OF_TEN[scale - fractionDigits];
+        return negative ? -value : value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,42 @@
+package org.vtb.multibanking.model;
+
+import java.math.BigDecimal;
+
+/*
+ Накопитель суммы для итогов агрегации: складывает Money в long, выравнивая число знаков после запятой
+ без округления. Если сумма или выравнивание не помещается в long, накопитель один раз переходит на BigDecimal
+ и дальше складывает в нём - итог остаётся точным. Валюту не проверяет - общий итог по всем счетам
+ считается так же, как раньше. Не потокобезопасен.
+ */
+public final class MoneyTotal {
+
+    private long unscaled;
+    private int scale;
+    private BigDecimal overflowed;
+
+    public MoneyTotal add(Money money) {
+        if (money == null) {
+            return this;
+        }
+        if (overflowed != null) {
+            overflowed = overflowed.add(money.toBigDecimal());
+            return this;
+        }
+        try {
+            int resultScale = Math.max(scale, money.getScale());
+            long sum = Math.addExact(Money.rescale(unscaled, scale, resultScale),
+                    Money.rescale(money.getUnscaled(), money.getScale(), resultScale));
+            unscaled = sum;
+            scale = resultScale;
+        } catch (ArithmeticException e) {
+            overflowed = BigDecimal.valueOf(unscaled, scale).add(money.toBigDecimal());
+        }
+        return this;
+    }
+
+    /* Не меньше двух знаков после запятой, как у прежних итогов */
+    public BigDecimal toBigDecimal() {
+        BigDecimal total = overflowed != null ? overflowed : BigDecimal.valueOf(unscaled, scale);
+        return total.scale() < Money.DEFAULT_SCALE ? total.setScale(Money.DEFAULT_SCALE) : total;
+    }
+}
@@ -0,0 +1,35 @@
+package org.vtb.multibanking.model;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Comparator;
+
+/* Позиция в ленте транзакций: "<bookingDateTime>,<transactionId>", лента идёт от новых к старым */
+public record TransactionCursor(Instant bookingDateTime, String transactionId) {
+
+    public static final Comparator<Transaction> NEWEST_FIRST = Comparator
+            .comparing(Transaction::getBookingDateTime, Comparator.nullsFirst(Comparator.<Instant>naturalOrder()))
+            .thenComparing(Transaction::getTransactionId, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+            .reversed();
+
+    public static TransactionCursor parse(String value) {
+        int separator = value.indexOf(',');
+        if (separator <= 0 || separator == value.length() - 1) {
+            throw new IllegalArgumentException("Некорректный курсор: " + value);
+        }
+        try {
+            return new TransactionCursor(Instant.parse(value.substring(0, separator)), value.substring(separator + 1));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Некорректная дата в курсоре: " + value);
+        }
+    }
+
+    public static TransactionCursor of(Transaction transaction) {
+        return new TransactionCursor(transaction.getBookingDateTime(), transaction.getTransactionId());
+    }
+
+    @Override
+    public String toString() {
+        return bookingDateTime + "," + transactionId;
+    }
+}
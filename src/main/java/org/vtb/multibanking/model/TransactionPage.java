@@ -0,0 +1,13 @@
+package org.vtb.multibanking.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class TransactionPage {
+    private List<Transaction> transactions;
+    private String nextCursor;
+}
@@ -0,0 +1,16 @@
+package org.vtb.multibanking.model.events;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+import java.util.List;
+
+@Getter
+public class ClusterMembershipEvent extends ApplicationEvent {
+    private final List<String> liveNodes;
+
+    public ClusterMembershipEvent(Object source, List<String> liveNodes) {
+        super(source);
+        this.liveNodes = liveNodes;
+    }
+}
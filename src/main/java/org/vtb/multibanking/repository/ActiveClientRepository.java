@@ -0,0 +1,13 @@
+package org.vtb.multibanking.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+import org.vtb.multibanking.entity.ActiveClientEntity;
+
+import java.time.Instant;
+import java.util.stream.Stream;
+
+@Repository
+public interface ActiveClientRepository extends MongoRepository<ActiveClientEntity, String> {
+    Stream<ActiveClientEntity> findByLastAccessAfter(Instant since);
+}
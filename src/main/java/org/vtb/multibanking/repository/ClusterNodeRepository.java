@@ -0,0 +1,13 @@
+package org.vtb.multibanking.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+import org.vtb.multibanking.entity.ClusterNodeEntity;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface ClusterNodeRepository extends MongoRepository<ClusterNodeEntity, String> {
+    List<ClusterNodeEntity> findByLastHeartbeatAfter(Instant since);
+}
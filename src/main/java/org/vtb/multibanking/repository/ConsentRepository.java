@@ -7,6 +7,7 @@ import org.vtb.multibanking.entity.ConsentEntity;
 import org.vtb.multibanking.model.BankType;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -18,4 +19,6 @@ public interface ConsentRepository extends MongoRepository<ConsentEntity, String
 
     @Query("{ 'consentId': ?0 }")
     Optional<ConsentEntity> findByConsentId(String consentId);
+
+    List<ConsentEntity> findByStatus(String status);
 }
@@ -0,0 +1,24 @@
+package org.vtb.multibanking.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.vtb.multibanking.entity.TransactionEntity;
+import org.vtb.multibanking.model.BankType;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface TransactionRepository extends MongoRepository<TransactionEntity, String> {
+    List<TransactionEntity> findByBankTypeAndAccountId(BankType bankType, String accountId, Pageable pageable);
+
+    long countByClientId(String clientId);
+
+    long countByClientIdAndBankTypeIn(String clientId, Collection<BankType> bankTypes);
+
+    @Query("{ 'bank_type': ?0, 'account_id': ?1, $or: [ { 'booking_date_time': { $lt: ?2 } }, { 'booking_date_time': ?2, 'transaction_id': { $lt: ?3 } } ] }")
+    List<TransactionEntity> findBefore(BankType bankType, String accountId, Instant bookingDateTime, String transactionId, Pageable pageable);
+}
@@ -0,0 +1,12 @@
+package org.vtb.multibanking.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+import org.vtb.multibanking.entity.TransactionSyncStateEntity;
+
+import java.util.List;
+
+@Repository
+public interface TransactionSyncStateRepository extends MongoRepository<TransactionSyncStateEntity, String> {
+    List<TransactionSyncStateEntity> findByClientId(String clientId);
+}
@@ -1,119 +1,351 @@
 package org.vtb.multibanking.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.vtb.multibanking.config.ExecutorFactory;
 import org.vtb.multibanking.model.Account;
 import org.vtb.multibanking.model.AggregationResult;
+import org.vtb.multibanking.model.BankAggregationStatus;
+import org.vtb.multibanking.model.BankFetchStatus;
 import org.vtb.multibanking.model.BankType;
+import org.vtb.multibanking.model.Money;
+import org.vtb.multibanking.model.MoneyTotal;
 import org.vtb.multibanking.service.bank.BankClient;
+import org.vtb.multibanking.service.bank.BankService;
+import org.vtb.multibanking.service.bank.ConsentPendingException;
+import org.vtb.multibanking.service.bank.resilience.BankResilienceRegistry;
+import org.vtb.multibanking.service.bank.resilience.BankUnavailableException;
+import org.vtb.multibanking.service.snapshot.AggregationKey;
+import org.vtb.multibanking.service.snapshot.AggregationSnapshotCache;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class AggregationService {
 
-    private final List<BankClient> bankClients;
-    private final ExecutorService executorService;
+    private final BankService bankService;
+    /*
+     Отдельный пул на банк: медленный банк не занимает потоки остальных. Разрешение держится до фактического
+     завершения загрузки, даже после deadline, поэтому недождавшиеся загрузки не копятся: при исчерпании
+     разрешений банк сразу отдаётся из снимка, а не ставится в очередь за устаревшей работой.
+     */
+    private final Map<BankType, Executor> bankExecutors = new EnumMap<>(BankType.class);
+    private final Map<BankType, Semaphore> bankPermits = new EnumMap<>(BankType.class);
+    private final Map<BankType, Counter> bankRejections = new EnumMap<>(BankType.class);
+    private final boolean asyncMode;
+    private final Duration defaultDeadline;
+    private final AggregationSnapshotCache snapshotCache;
+    private final BankResilienceRegistry resilienceRegistry;
+    private final RequestCoalescer<AggregationKey, AggregationResult> coalescer;
 
-    public AggregationService(List<BankClient> bankClients) {
-        this.bankClients = bankClients;
-        this.executorService = Executors.newFixedThreadPool(bankClients.size());
+    /* Последний успешный ответ каждого банка по клиенту - отдаётся, если банк не уложился в срок или ответил ошибкой */
+    private final Cache<SnapshotKey, BankSnapshot> snapshots;
+
+    public AggregationService(BankService bankService, ExecutorFactory executorFactory,
+                              AggregationSnapshotCache snapshotCache,
+                              BankResilienceRegistry resilienceRegistry,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.aggregation.async:false}") boolean asyncMode,
+                              @Value("${app.aggregation.default-deadline:30s}") Duration defaultDeadline,
+                              @Value("${app.aggregation.snapshot.max-size:10000}") long snapshotMaxSize,
+                              @Value("${app.aggregation.snapshot.ttl:24h}") Duration snapshotTtl,
+                              @Value("${app.aggregation.per-bank-concurrency:32}") int perBankConcurrency) {
+        this.bankService = bankService;
+        for (BankType bankType : BankType.values()) {
+            String bank = bankType.name().toLowerCase();
+            Semaphore permits = new Semaphore(perBankConcurrency);
+            bankExecutors.put(bankType, executorFactory.newExecutor("aggregation-" + bank, perBankConcurrency));
+            bankPermits.put(bankType, permits);
+            bankRejections.put(bankType, meterRegistry.counter("aggregation.bank.rejected", "bank", bank));
+            Gauge.builder("aggregation.bank.in.flight", permits, p -> perBankConcurrency - p.availablePermits())
+                    .tag("bank", bank)
+                    .register(meterRegistry);
+        }
+        this.asyncMode = asyncMode;
+        this.defaultDeadline = defaultDeadline;
+        this.snapshotCache = snapshotCache;
+        this.resilienceRegistry = resilienceRegistry;
+        this.coalescer = new RequestCoalescer<>(meterRegistry, "aggregation.fetches");
+        this.snapshots = Caffeine.newBuilder()
+                .maximumSize(snapshotMaxSize)
+                .expireAfterWrite(snapshotTtl)
+                .build();
+    }
+
+    /* Агрегация через кэш снимков: свежий или устаревший снимок отдаётся без обращения к банкам */
+    public AggregationResult getAggregation(String clientId, List<BankType> bankTypes, Duration deadline) {
+        AggregationKey key = AggregationKey.of(clientId, bankTypes);
+        Duration effectiveDeadline = deadline != null ? deadline : defaultDeadline;
+        return snapshotCache.get(key, () -> aggregateAccounts(clientId, key.bankTypes(), effectiveDeadline));
+    }
+
+    public AggregationResult refreshAggregation(String clientId, List<BankType> bankTypes) {
+        AggregationKey key = AggregationKey.of(clientId, bankTypes);
+        return snapshotCache.refresh(key, () -> aggregateAccounts(clientId, key.bankTypes(), defaultDeadline));
     }
 
     public AggregationResult aggregateAccounts(String clientId, List<BankType> bankTypes) {
-        List<BankClient> clientsToProcess = bankClients;
+        return aggregateAccounts(clientId, bankTypes, defaultDeadline);
+    }
 
-        if (bankTypes != null && !bankTypes.isEmpty()) {
-            clientsToProcess = bankClients.stream()
-                    .filter(client -> bankTypes.contains(client.getBankType()))
-                    .collect(Collectors.toList());
-        }
+    /*
+     Одновременные агрегации одного клиента по одному набору банков (фронтенд, автообновление, второе устройство)
+     объединяются: опрос банков выполняет первый вызов, остальные ждут его результат, но не дольше своего deadline.
+     Если первый вызов не успел к сроку присоединившегося, тот получает банки со статусом TIMED_OUT из снимков.
+     */
+    public AggregationResult aggregateAccounts(String clientId, List<BankType> bankTypes, Duration deadline) {
+        AggregationKey key = AggregationKey.of(clientId, bankTypes);
+        long startedAt = System.nanoTime();
+        return coalescer.execute(key, deadline,
+                () -> fanOut(clientId, key.bankTypes(), deadline, this::getAccountsAsync),
+                () -> timedOut(clientId, key.bankTypes(), startedAt));
+    }
+
+    /*
+     Агрегация с внешним способом вызова банков - для пакетной агрегации через общие пулы с лимитами.
+     Результат обновляет кэш снимков так же, как фоновое обновление.
+     */
+    public AggregationResult aggregateWith(String clientId, List<BankType> bankTypes, Duration deadline,
+                                           Function<BankClient, CompletableFuture<List<Account>>> fetcher) {
+        AggregationKey key = AggregationKey.of(clientId, bankTypes);
+        return snapshotCache.refresh(key, () -> fanOut(clientId, key.bankTypes(), deadline, fetcher));
+    }
+
+    /*
+     Все банки опрашиваются параллельно и ждутся до одного общего срока deadline.
+     Банки, не ответившие к сроку, продолжают загрузку в фоне и обновляют снимок для следующих запросов.
+     */
+    private AggregationResult fanOut(String clientId, List<BankType> bankTypes, Duration deadline,
+                                     Function<BankClient, CompletableFuture<List<Account>>> fetcher) {
+        long startedAt = System.nanoTime();
+
+        List<BankClient> clientsToProcess = clientsFor(clientId, bankTypes);
+
+        Map<BankType, Long> latencies = new ConcurrentHashMap<>();
         List<CompletableFuture<List<Account>>> futures = clientsToProcess.stream()
-                .map(this::getAccountsAsync)
+                .map(client -> fetchAccounts(client, fetcher)
+                        .whenComplete((accounts, e) -> {
+                            latencies.put(client.getBankType(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+                            if (e == null) {
+                                snapshots.put(new SnapshotKey(clientId, client.getBankType()), new BankSnapshot(accounts, Instant.now()));
+                            }
+                        }))
                 .toList();
 
+        awaitDeadline(futures, startedAt + deadline.toNanos());
+        long deadlineLatency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+
+        List<BankType> processedBankTypes = clientsToProcess.stream().map(BankClient::getBankType).toList();
+        return buildResult(clientId, processedBankTypes, futures, latencies, deadlineLatency);
+    }
+
+    /* Результат без собственного опроса банков: все банки TIMED_OUT, счета - из последних снимков */
+    private AggregationResult timedOut(String clientId, List<BankType> bankTypes, long startedAt) {
+        List<BankType> processedBankTypes = clientsFor(clientId, bankTypes).stream().map(BankClient::getBankType).toList();
+        List<CompletableFuture<List<Account>>> notAwaited = Collections.nCopies(processedBankTypes.size(), new CompletableFuture<>());
+        return buildResult(clientId, processedBankTypes, notAwaited, Map.of(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+    }
+
+    private List<BankClient> clientsFor(String clientId, List<BankType> bankTypes) {
+        List<BankClient> bankClients = bankService.getBankClients(clientId);
+        if (bankTypes == null || bankTypes.isEmpty()) {
+            return bankClients;
+        }
+        return bankClients.stream()
+                .filter(client -> bankTypes.contains(client.getBankType()))
+                .collect(Collectors.toList());
+    }
+
+    /* Банк, чей future не завершён к моменту сборки, получает TIMED_OUT и счета из снимка */
+    private AggregationResult buildResult(String clientId, List<BankType> processedBankTypes,
+                                          List<CompletableFuture<List<Account>>> futures,
+                                          Map<BankType, Long> latencies, long deadlineLatency) {
         List<Account> allAccounts = new ArrayList<>();
         Map<BankType, BigDecimal> balanceByBank = new HashMap<>();
-        Map<String, BigDecimal> balanceByCurrency = new HashMap<>();
+        Map<BankType, BankAggregationStatus> bankStatuses = new EnumMap<>(BankType.class);
 
         for (int i = 0; i < futures.size(); i++) {
-            BankClient bankClient = clientsToProcess.get(i);
+            BankType bankType = processedBankTypes.get(i);
             CompletableFuture<List<Account>> future = futures.get(i);
 
-            try {
-                List<Account> bankAccounts = future.get(30, TimeUnit.SECONDS);
-                allAccounts.addAll(bankAccounts);
+            List<Account> bankAccounts;
+            BankAggregationStatus bankStatus;
+            if (!future.isDone()) {
+                log.warn("Превышено время извлечения данных из банка {}", bankType);
+                bankStatus = BankAggregationStatus.builder()
+                        .status(BankFetchStatus.TIMED_OUT)
+                        .latencyMs(deadlineLatency)
+                        .build();
+                bankAccounts = fromSnapshot(clientId, bankType, bankStatus);
+            } else if (future.isCompletedExceptionally()) {
+                Throwable error = unwrap(future.handle((accounts, e) -> e).join());
+                bankStatus = BankAggregationStatus.builder()
+                        .status(error instanceof BankUnavailableException ? BankFetchStatus.UNAVAILABLE : BankFetchStatus.FAILED)
+                        .latencyMs(latencies.getOrDefault(bankType, deadlineLatency))
+                        .error(error.getMessage())
+                        .build();
+                bankAccounts = fromSnapshot(clientId, bankType, bankStatus);
+            } else {
+                bankStatus = BankAggregationStatus.builder()
+                        .status(BankFetchStatus.COMPLETE)
+                        .latencyMs(latencies.getOrDefault(bankType, deadlineLatency))
+                        .build();
+                bankAccounts = future.join();
+            }
+            bankStatus.setCircuitState(resilienceRegistry.getState(bankType));
+            bankStatuses.put(bankType, bankStatus);
+            allAccounts.addAll(bankAccounts);
 
-                BigDecimal bankTotal = bankAccounts.stream()
-                        .filter((Account::isActive))
-                        .map(acc -> acc.getCurrentBalance() != null ? acc.getCurrentBalance() : BigDecimal.ZERO)
-                        .reduce(BigDecimal.ZERO, BigDecimal::add);
+            MoneyTotal bankTotalMoney = new MoneyTotal();
+            for (Account account : bankAccounts) {
+                if (account.isActive()) {
+                    bankTotalMoney.add(account.getCurrentMoney());
+                }
+            }
+            BigDecimal bankTotal = bankTotalMoney.toBigDecimal();
 
-                balanceByBank.put(bankClient.getBankType(), bankTotal);
+            balanceByBank.put(bankType, bankTotal);
 
-                log.info("Число аккаутов в банке {}: {}; общий баланс: {}",  bankClient.getBankType(), bankAccounts.size(), bankTotal);
-            } catch (TimeoutException te) {
-                log.warn("Превышено время извлечения данных из банка {}", bankClient.getBankType());
-                balanceByBank.put(bankClient.getBankType(), BigDecimal.ZERO);
-            } catch (Exception e) {
-                log.error("Ошибка при извлечении данных из банка {}: {}",bankClient.getBankType(), e.getMessage());
-                balanceByBank.put(bankClient.getBankType(), BigDecimal.ZERO);
-            }
+            log.info("Число аккаутов в банке {}: {}; общий баланс: {}; статус: {}", bankType, bankAccounts.size(), bankTotal, bankStatus.getStatus());
         }
 
-        BigDecimal totalBalance = BigDecimal.ZERO;
-        BigDecimal totalAvailableBalance = BigDecimal.ZERO;
+        // Суммы копятся в long без округления; BigDecimal создаётся только для итоговых значений ответа
+        MoneyTotal totalBalance = new MoneyTotal();
+        MoneyTotal totalAvailableBalance = new MoneyTotal();
         long activeAccounts = 0;
+        Map<String, MoneyTotal> totalByCurrency = new HashMap<>();
 
         for (Account account: allAccounts) {
             if (account.isActive()) {
                 activeAccounts++;
 
-                BigDecimal balance = account.getCurrentBalance() != null ?
-                        account.getCurrentBalance() : BigDecimal.ZERO;
-                BigDecimal availableBalance = account.getAvailableBalance() != null ?
-                        account.getAvailableBalance() : balance;
-
-                totalBalance = totalBalance.add(balance);
-                totalAvailableBalance = totalAvailableBalance.add(availableBalance);
+                Money balance = account.getCurrentMoney();
+                Money available = account.getAvailableMoney();
 
-                balanceByCurrency.merge(account.getCurrency(), balance, BigDecimal::add);
+                totalBalance.add(balance);
+                totalAvailableBalance.add(available != null ? available : balance);
+                totalByCurrency.computeIfAbsent(account.getCurrency(), currency -> new MoneyTotal()).add(balance);
             }
         }
 
+        Map<String, BigDecimal> balanceByCurrency = new HashMap<>();
+        totalByCurrency.forEach((currency, total) -> balanceByCurrency.put(currency, total.toBigDecimal()));
+
         return AggregationResult.builder()
                 .success(true)
                 .clientId(clientId)
-                .totalBalance(totalBalance)
-                .totalAvailableBalance(totalAvailableBalance)
+                .totalBalance(totalBalance.toBigDecimal())
+                .totalAvailableBalance(totalAvailableBalance.toBigDecimal())
                 .totalAccounts(allAccounts.size())
                 .activeAccounts(activeAccounts)
                 .balanceByBank(balanceByBank)
                 .balanceByCurrency(balanceByCurrency)
                 .accounts(allAccounts)
+                .bankStatuses(bankStatuses)
+                .partial(bankStatuses.values().stream().anyMatch(status -> status.getStatus() != BankFetchStatus.COMPLETE))
                 .timestamp(Instant.now())
                 .build();
     }
 
+    private CompletableFuture<List<Account>> fetchAccounts(BankClient client,
+                                                           Function<BankClient, CompletableFuture<List<Account>>> fetcher) {
+        CompletableFuture<List<Account>> future;
+        try {
+            future = fetcher.apply(client);
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((accounts, e) -> {
+            if (e != null) {
+                logFetchError(client, unwrap(e));
+            }
+        });
+    }
+
     private CompletableFuture<List<Account>> getAccountsAsync(BankClient client) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                return client.fetchAccounts();
-            } catch (Exception e) {
-                log.error("Ошибка получения информации об аккаунтах из банка {}: {}", client.getBankType(), e.getMessage());
-                return List.of();
+        BankType bankType = client.getBankType();
+        Semaphore permits = bankPermits.get(bankType);
+        if (!permits.tryAcquire()) {
+            bankRejections.get(bankType).increment();
+            return CompletableFuture.failedFuture(
+                    new BankUnavailableException(bankType, "исчерпан лимит одновременных загрузок агрегации"));
+        }
+
+        CompletableFuture<List<Account>> future;
+        try {
+            if (asyncMode) {
+                future = client.fetchAccountsAsync();
+            } else {
+                future = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return client.fetchAccounts();
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                }, bankExecutors.get(bankType));
             }
-        }, executorService);
+        } catch (RuntimeException e) {
+            permits.release();
+            return CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((accounts, e) -> permits.release());
+    }
+
+    private static void awaitDeadline(List<CompletableFuture<List<Account>>> futures, long deadlineNanos) {
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                    .get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // Статус каждого банка разбирается по его собственному future
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<Account> fromSnapshot(String clientId, BankType bankType, BankAggregationStatus bankStatus) {
+        BankSnapshot snapshot = snapshots.getIfPresent(new SnapshotKey(clientId, bankType));
+        if (snapshot == null) {
+            return List.of();
+        }
+        bankStatus.setSnapshotAt(snapshot.takenAt());
+        return snapshot.accounts();
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    private void logFetchError(BankClient client, Throwable e) {
+        if (e instanceof ConsentPendingException || e instanceof BankUnavailableException) {
+            log.info("Банк {} пропущен: {}", client.getBankType(), e.getMessage());
+            return;
+        }
+        log.error("Ошибка получения информации об аккаунтах из банка {}: {}", client.getBankType(), e.getMessage());
     }
 
     @PreDestroy
     public void shutdown() {
-        executorService.shutdown();
+        bankExecutors.values().forEach(ExecutorFactory::shutdown);
+    }
+
+    private record SnapshotKey(String clientId, BankType bankType) {
+    }
+
+    private record BankSnapshot(List<Account> accounts, Instant takenAt) {
     }
 }
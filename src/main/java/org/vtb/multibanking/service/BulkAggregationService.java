@@ -0,0 +1,261 @@
+package org.vtb.multibanking.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.vtb.multibanking.config.ExecutorFactory;
+import org.vtb.multibanking.model.Account;
+import org.vtb.multibanking.model.AggregationResult;
+import org.vtb.multibanking.model.BankType;
+import org.vtb.multibanking.service.bank.BankClient;
+import org.vtb.multibanking.service.bank.resilience.BankUnavailableException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/*
+ Пакетная агрегация для фоновых задач (выписки, скоринг): один вызов на список клиентов вместо запроса на клиента.
+ Одновременно агрегируется не больше max-concurrent-clients клиентов на все пакетные запросы сразу,
+ а к каждому банку идёт не больше per-bank-concurrency загрузок. Место загрузки в банке занято, пока она
+ действительно не закончится, даже если клиент уже отдан с частичным результатом по deadline: зависший банк
+ не копит очередь, а новые загрузки к нему получают отказ, если место не освободилось до deadline клиента.
+ Место ждётся асинхронно, поэтому ожидание зависшего банка не задерживает запуск загрузок из других банков.
+ Пакет целиком ограничен batch-timeout (меньше spring.mvc.async.request-timeout): по его истечении
+ для необработанных клиентов пишется строка с ошибкой и ответ завершается.
+ Результаты отдаются потребителю по мере готовности в потоке вызывающего, поэтому запись ответа не требует синхронизации.
+ */
+@Slf4j
+@Service
+public class BulkAggregationService {
+
+    private static final long POLL_MILLIS = 100;
+
+    private final AggregationService aggregationService;
+    private final Executor clientExecutor;
+    private final Map<BankType, Executor> bankExecutors = new EnumMap<>(BankType.class);
+    private final Map<BankType, BankSlots> bankSlots = new EnumMap<>(BankType.class);
+    private final Semaphore clientSlots;
+    private final Duration deadline;
+    private final Duration batchTimeout;
+    private final int maxClients;
+
+    public BulkAggregationService(AggregationService aggregationService, ExecutorFactory executorFactory,
+                                  @Value("${app.aggregation.bulk.max-concurrent-clients:16}") int maxConcurrentClients,
+                                  @Value("${app.aggregation.bulk.per-bank-concurrency:8}") int perBankConcurrency,
+                                  @Value("${app.aggregation.bulk.deadline:30s}") Duration deadline,
+                                  @Value("${app.aggregation.bulk.batch-timeout:25m}") Duration batchTimeout,
+                                  @Value("${app.aggregation.bulk.max-clients:10000}") int maxClients) {
+        this.aggregationService = aggregationService;
+        this.clientExecutor = executorFactory.newExecutor("bulk-aggregation", maxConcurrentClients);
+        for (BankType bankType : BankType.values()) {
+            // Задач в пуле не больше, чем мест банка, поэтому очередь пула не растёт
+            bankExecutors.put(bankType, executorFactory.newExecutor("bulk-" + bankType.name().toLowerCase(), perBankConcurrency));
+            bankSlots.put(bankType, new BankSlots(perBankConcurrency));
+        }
+        this.clientSlots = new Semaphore(maxConcurrentClients);
+        this.deadline = deadline;
+        this.batchTimeout = batchTimeout;
+        this.maxClients = maxClients;
+    }
+
+    public int getMaxClients() {
+        return maxClients;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ExecutorFactory.shutdown(clientExecutor);
+        bankExecutors.values().forEach(ExecutorFactory::shutdown);
+    }
+
+    public void aggregate(List<String> clientIds, List<BankType> bankTypes, Consumer<AggregationResult> onResult)
+            throws InterruptedException {
+        long batchDeadline = System.nanoTime() + batchTimeout.toNanos();
+        BlockingQueue<AggregationResult> completed = new LinkedBlockingQueue<>();
+        // Строку по клиенту пишет тот, кто первым уберёт его из pending: обработчик или истечение batch-timeout
+        Set<String> pending = ConcurrentHashMap.newKeySet();
+        int submitted = 0;
+        int delivered = 0;
+
+        Iterator<String> clients = new LinkedHashSet<>(clientIds).iterator();
+        while (clients.hasNext()) {
+            String clientId = clients.next();
+            boolean acquired = false;
+            // Пока ждём свободный слот, отдаём уже готовые результаты
+            while (System.nanoTime() < batchDeadline
+                    && !(acquired = clientSlots.tryAcquire(POLL_MILLIS, TimeUnit.MILLISECONDS))) {
+                delivered += drain(completed, onResult);
+            }
+            if (!acquired) {
+                onResult.accept(timedOut(clientId));
+                clients.forEachRemaining(remaining -> onResult.accept(timedOut(remaining)));
+                break;
+            }
+            pending.add(clientId);
+            try {
+                clientExecutor.execute(() -> {
+                    try {
+                        AggregationResult result = aggregateClient(clientId, bankTypes);
+                        if (pending.remove(clientId)) {
+                            completed.add(result);
+                        }
+                    } finally {
+                        clientSlots.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                pending.remove(clientId);
+                clientSlots.release();
+                throw e;
+            }
+            submitted++;
+            delivered += drain(completed, onResult);
+        }
+
+        while (delivered < submitted) {
+            AggregationResult result = completed.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (result != null) {
+                onResult.accept(result);
+                delivered++;
+            } else if (System.nanoTime() >= batchDeadline) {
+                for (String clientId : pending) {
+                    if (pending.remove(clientId)) {
+                        onResult.accept(timedOut(clientId));
+                        delivered++;
+                    }
+                }
+            }
+        }
+    }
+
+    private AggregationResult aggregateClient(String clientId, List<BankType> bankTypes) {
+        long clientDeadline = System.nanoTime() + deadline.toNanos();
+        try {
+            return aggregationService.aggregateWith(clientId, bankTypes, deadline,
+                    client -> fetchOnBankPool(client, clientDeadline));
+        } catch (Exception e) {
+            log.error("Ошибка пакетной агрегации клиента {}: {}", clientId, e.getMessage());
+            return failed(clientId, e.getMessage());
+        }
+    }
+
+    /*
+     Место банка ждётся не дольше, чем осталось до deadline клиента, и освобождается по окончании загрузки,
+     а не по deadline. Вызов не блокирует: банки клиента запускаются сразу, каждый - когда получит место.
+     */
+    private CompletableFuture<List<Account>> fetchOnBankPool(BankClient client, long clientDeadline) {
+        BankType bankType = client.getBankType();
+        BankSlots slots = bankSlots.get(bankType);
+        return slots.acquire(clientDeadline - System.nanoTime())
+                .exceptionallyCompose(e -> CompletableFuture.failedFuture(
+                        new BankUnavailableException(bankType, "исчерпан лимит одновременных загрузок пакетной агрегации")))
+                .thenCompose(ignored -> {
+                    try {
+                        return CompletableFuture.supplyAsync(() -> {
+                            try {
+                                return client.fetchAccounts();
+                            } catch (Exception e) {
+                                throw new CompletionException(e);
+                            }
+                        }, bankExecutors.get(bankType)).whenComplete((accounts, e) -> slots.release());
+                    } catch (RuntimeException e) {
+                        slots.release();
+                        throw e;
+                    }
+                });
+    }
+
+    private static AggregationResult timedOut(String clientId) {
+        log.warn("Клиент {} не агрегирован: истекло время пакетной агрегации", clientId);
+        return failed(clientId, "истекло время пакетной агрегации");
+    }
+
+    private static AggregationResult failed(String clientId, String error) {
+        return AggregationResult.builder()
+                .success(false)
+                .clientId(clientId)
+                .error(error)
+                .timestamp(Instant.now())
+                .build();
+    }
+
+    private static int drain(BlockingQueue<AggregationResult> completed, Consumer<AggregationResult> onResult) {
+        int count = 0;
+        AggregationResult result;
+        while ((result = completed.poll()) != null) {
+            onResult.accept(result);
+            count++;
+        }
+        return count;
+    }
+
+    /*
+     Места загрузок одного банка с асинхронным ожиданием: освободившееся место передаётся первому
+     ожидающему в порядке очереди; ожидание, не дождавшееся места к сроку, завершается TimeoutException.
+     */
+    private static final class BankSlots {
+
+        private final int capacity;
+        private final Deque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+        private int used;
+
+        private BankSlots(int capacity) {
+            this.capacity = capacity;
+        }
+
+        CompletableFuture<Void> acquire(long timeoutNanos) {
+            CompletableFuture<Void> waiter = new CompletableFuture<>();
+            synchronized (this) {
+                if (used < capacity) {
+                    used++;
+                    return CompletableFuture.completedFuture(null);
+                }
+                waiters.add(waiter);
+            }
+            waiter.orTimeout(Math.max(0, timeoutNanos), TimeUnit.NANOSECONDS)
+                    .whenComplete((ignored, e) -> {
+                        if (e != null) {
+                            synchronized (this) {
+                                waiters.remove(waiter);
+                            }
+                        }
+                    });
+            return waiter;
+        }
+
+        void release() {
+            while (true) {
+                CompletableFuture<Void> next;
+                synchronized (this) {
+                    next = waiters.poll();
+                    if (next == null) {
+                        used--;
+                        return;
+                    }
+                }
+                // Место переходит ожидающему, used не меняется; если его ожидание уже истекло - следующему
+                if (next.complete(null)) {
+                    return;
+                }
+            }
+        }
+    }
+}
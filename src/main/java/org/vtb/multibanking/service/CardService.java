@@ -0,0 +1,163 @@
+package org.vtb.multibanking.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.vtb.multibanking.model.BankType;
+import org.vtb.multibanking.model.Card;
+import org.vtb.multibanking.service.bank.BankFanOutResult;
+import org.vtb.multibanking.service.bank.BankFanOutService;
+import org.vtb.multibanking.service.bank.BankService;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.UnaryOperator;
+
+/*
+ Кэш списков карт по (пользователь, банк) с TTL. Выпуск и удаление карты сразу правят закэшированный список.
+ У каждой записи есть момент asOf: список, загрузка которого началась раньше последнего изменения,
+ в кэш не попадает, поэтому медленный ответ банка не затирает только что выпущенную карту.
+ Пустые поля карты заполняются один раз перед записью в кэш, на копии: закэшированные карты
+ общие для всех запросов и после записи не меняются.
+ */
+@Slf4j
+@Service
+public class CardService {
+
+    private final BankService bankService;
+    private final BankFanOutService bankFanOutService;
+    private final Cache<CardsKey, CachedCards> cache;
+
+    public CardService(BankService bankService, BankFanOutService bankFanOutService, MeterRegistry meterRegistry,
+                       @Value("${app.cards.cache.ttl:60s}") Duration ttl,
+                       @Value("${app.cards.cache.max-size:10000}") long maxSize) {
+        this.bankService = bankService;
+        this.bankFanOutService = bankFanOutService;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "cards");
+    }
+
+    public List<Card> getCards(BankType bankType, String userId, boolean refresh) throws Exception {
+        CardsKey key = new CardsKey(userId, bankType);
+        List<Card> cached = refresh ? null : cached(key);
+        if (cached != null) {
+            return cached;
+        }
+        long startedAt = System.nanoTime();
+        return store(key, bankService.getBankClient(bankType, userId).getCards(), startedAt);
+    }
+
+    public BankFanOutResult<List<Card>> getAllCards(String userId, boolean refresh) {
+        return bankFanOutService.fanOutAsync(userId, BankFanOutService.allBanks(), client -> {
+            CardsKey key = new CardsKey(userId, client.getBankType());
+            List<Card> cached = refresh ? null : cached(key);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+            long startedAt = System.nanoTime();
+            return client.getCardsAsync().thenApply(cards -> store(key, cards, startedAt));
+        });
+    }
+
+    /* Сначала поиск по кэшу; карты, выпущенной в обход приложения, там может не быть - тогда списки перечитываются */
+    public Optional<Map.Entry<BankType, Card>> findCard(String userId, String cardId, boolean refresh) {
+        Optional<Map.Entry<BankType, Card>> found = findCard(getAllCards(userId, refresh), cardId);
+        if (found.isEmpty() && !refresh) {
+            found = findCard(getAllCards(userId, true), cardId);
+        }
+        return found;
+    }
+
+    public Card createCard(BankType bankType, String userId, String accountNumber, String cardType, String cardName) throws Exception {
+        Card created = bankService.getBankClient(bankType, userId).createCard(accountNumber, cardType, cardName);
+        Card card = created != null ? normalize(created, bankType) : null;
+        if (card != null) {
+            update(new CardsKey(userId, bankType), cards -> {
+                List<Card> updated = new ArrayList<>(cards);
+                updated.add(card);
+                return updated;
+            });
+        }
+        return card;
+    }
+
+    public boolean deleteCard(BankType bankType, String userId, String cardId) throws Exception {
+        boolean deleted = bankService.getBankClient(bankType, userId).deleteCard(cardId);
+        if (deleted) {
+            update(new CardsKey(userId, bankType), cards -> cards.stream()
+                    .filter(card -> !cardId.equals(card.getCardId()))
+                    .toList());
+        }
+        return deleted;
+    }
+
+    private static Optional<Map.Entry<BankType, Card>> findCard(BankFanOutResult<List<Card>> fanOut, String cardId) {
+        return fanOut.results().entrySet().stream()
+                .flatMap(entry -> entry.getValue().stream()
+                        .filter(card -> cardId.equals(card.getCardId()))
+                        .map(card -> Map.entry(entry.getKey(), card)))
+                .findFirst();
+    }
+
+    private List<Card> cached(CardsKey key) {
+        CachedCards cached = cache.getIfPresent(key);
+        return cached != null ? cached.cards() : null;
+    }
+
+    private List<Card> store(CardsKey key, List<Card> cards, long fetchStartedAt) {
+        List<Card> snapshot = cards.stream()
+                .filter(Objects::nonNull)
+                .map(card -> normalize(card, key.bankType()))
+                .toList();
+        cache.asMap().compute(key, (k, existing) -> existing != null && existing.asOf() > fetchStartedAt
+                ? existing
+                : new CachedCards(snapshot, fetchStartedAt));
+        return snapshot;
+    }
+
+    /* Если списка в кэше нет, остаётся пустая запись-метка: загрузки, начатые до изменения, её не перезапишут */
+    private void update(CardsKey key, UnaryOperator<List<Card>> change) {
+        cache.asMap().compute(key, (k, existing) -> new CachedCards(
+                existing != null && existing.cards() != null ? List.copyOf(change.apply(existing.cards())) : null,
+                System.nanoTime()));
+    }
+
+    private static Card normalize(Card card, BankType bankType) {
+        if (card.getCardId() != null && card.getCardNumber() != null && card.getCardName() != null
+                && card.getCardType() != null && card.getStatus() != null && card.getAccountNumber() != null
+                && card.getBankType() != null) {
+            return card;
+        }
+        return new Card(
+                Objects.requireNonNullElse(card.getCardId(), "unknown"),
+                Objects.requireNonNullElse(card.getCardNumber(), "N/A"),
+                Objects.requireNonNullElse(card.getCardName(), "Безымянная карта"),
+                Objects.requireNonNullElse(card.getCardType(), "debit"),
+                Objects.requireNonNullElse(card.getStatus(), "unknown"),
+                Objects.requireNonNullElse(card.getAccountNumber(), "N/A"),
+                Objects.requireNonNullElse(card.getBankType(), bankType),
+                card.getIssueDate(),
+                card.getExpiryDate(),
+                card.getLimits(),
+                card.getBalance());
+    }
+
+    private record CardsKey(String userId, BankType bankType) {
+    }
+
+    private record CachedCards(List<Card> cards, long asOf) {
+    }
+}
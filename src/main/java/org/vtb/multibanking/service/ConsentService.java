@@ -1,7 +1,12 @@
 package org.vtb.multibanking.service;
 
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.vtb.multibanking.entity.ConsentEntity;
 import org.vtb.multibanking.entity.ProductConsentEntity;
@@ -10,27 +15,56 @@ import org.vtb.multibanking.repository.ConsentRepository;
 import org.vtb.multibanking.repository.ProductConsentRepository;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 import java.time.Instant;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class ConsentService {
 
     private final ConsentRepository consentRepository;
     private final ProductConsentRepository productConsentRepository;
 
+    /*
+     Действующие согласия кэшируются в памяти по (банк, клиент): запись живёт до истечения согласия,
+     но не дольше cache.ttl, и сбрасывается при любом сохранении или смене статуса.
+     Отсутствие согласия не кэшируется, чтобы новое согласие подхватывалось сразу.
+     */
+    private final Cache<ConsentKey, CachedConsent> activeConsents;
+    private final Cache<ConsentKey, CachedConsent> activeProductConsents;
+
+    public ConsentService(ConsentRepository consentRepository,
+                          ProductConsentRepository productConsentRepository,
+                          MeterRegistry meterRegistry,
+                          @Value("${app.consent.cache.max-size:10000}") long maxSize,
+                          @Value("${app.consent.cache.ttl:1h}") Duration ttl) {
+        this.consentRepository = consentRepository;
+        this.productConsentRepository = productConsentRepository;
+        this.activeConsents = buildCache(maxSize, ttl);
+        this.activeProductConsents = buildCache(maxSize, ttl);
+        CaffeineCacheMetrics.monitor(meterRegistry, activeConsents, "consents");
+        CaffeineCacheMetrics.monitor(meterRegistry, activeProductConsents, "product.consents");
+    }
+
     public Optional<String> getActiveConsentId(BankType bankType, String clientId) {
+        ConsentKey key = new ConsentKey(bankType, clientId);
+        CachedConsent cached = activeConsents.getIfPresent(key);
+        if (cached != null && cached.isActive()) {
+            return Optional.of(cached.consentId());
+        }
+
         Optional<ConsentEntity> consent = consentRepository.findActiveConsent(bankType, clientId, Instant.now());
 
-        if (consent.isPresent()) {
-            log.info("Найдено действующее согласие согласие для {}: {}", bankType, consent.get().getConsentId());
+        if (consent.isPresent() && consent.get().getConsentId() != null) {
+            log.debug("Найдено действующее согласие согласие для {}: {}", bankType, consent.get().getConsentId());
+            activeConsents.put(key, new CachedConsent(consent.get().getConsentId(), consent.get().getExpiresAt()));
             return Optional.of(consent.get().getConsentId());
         }
 
-        log.info("Действующее согласие для {} не найдено", bankType);
+        log.debug("Действующее согласие для {} не найдено", bankType);
+        activeConsents.invalidate(key);
         return Optional.empty();
     }
 
@@ -49,6 +83,7 @@ public class ConsentService {
                 .orElse(createNewConsent(bankType, clientId, consentId, requestId, status, expiresAt));
 
         consentRepository.save(consent);
+        activeConsents.invalidate(new ConsentKey(bankType, clientId));
         log.info("Сохранено согласие для {}: {} - {}", bankType, clientId, status);
     }
 
@@ -74,6 +109,7 @@ public class ConsentService {
                         consent.setConsentId(consentId.toLowerCase());
                     }
                     consentRepository.save(consent);
+                    activeConsents.invalidate(new ConsentKey(bankType, clientId));
                     log.info("Обновлен статус согласия для {}: {}", bankType, status);
                 });
     }
@@ -84,15 +120,28 @@ public class ConsentService {
                 .map(ConsentEntity::getRequestId);
     }
 
+    public List<ConsentEntity> getPendingConsents() {
+        return consentRepository.findByStatus("pending");
+    }
+
     public Optional<String> getActiveProductConsentId(BankType bankType, String clientId) {
-        Optional<ProductConsentEntity> consent = productConsentRepository.findByBankTypeAndClientId(bankType, clientId);
+        ConsentKey key = new ConsentKey(bankType, clientId);
+        CachedConsent cached = activeProductConsents.getIfPresent(key);
+        if (cached != null && cached.isActive()) {
+            return Optional.of(cached.consentId());
+        }
+
+        Optional<ProductConsentEntity> consent = productConsentRepository.findByBankTypeAndClientId(bankType, clientId)
+                .filter(productConsent -> !productConsent.isExpired());
 
-        if (consent.isPresent()) {
-            log.info("Найдено действующее продуктовое согласие для {}: {}", bankType, consent.get().getConsentId());
+        if (consent.isPresent() && consent.get().getConsentId() != null) {
+            log.debug("Найдено действующее продуктовое согласие для {}: {}", bankType, consent.get().getConsentId());
+            activeProductConsents.put(key, new CachedConsent(consent.get().getConsentId(), consent.get().getExpiresAt()));
             return Optional.of(consent.get().getConsentId());
         }
 
-        log.info("Действующее продуктовое согласие для {} не найдено", bankType);
+        activeProductConsents.invalidate(key);
+        log.debug("Действующее продуктовое согласие для {} не найдено", bankType);
         return Optional.empty();
     }
 
@@ -110,6 +159,7 @@ public class ConsentService {
                 .orElse(createNewProductConsent(bankType, clientId, consentId, status, expiresAt));
 
         productConsentRepository.save(productConsent);
+        activeProductConsents.invalidate(new ConsentKey(bankType, clientId));
         log.info("Сохранено продуктовое согласие для {}: {} - {}", bankType, clientId, status);
 
     }
@@ -134,4 +184,48 @@ public class ConsentService {
         return productConsentRepository.findByConsentId(consentId).get().isExpired();
     }
 
+    private static Cache<ConsentKey, CachedConsent> buildCache(long maxSize, Duration ttl) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<ConsentKey, CachedConsent>() {
+                    @Override
+                    public long expireAfterCreate(ConsentKey key, CachedConsent value, long currentTime) {
+                        return value.timeToLive(ttl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(ConsentKey key, CachedConsent value, long currentTime, long currentDuration) {
+                        return value.timeToLive(ttl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(ConsentKey key, CachedConsent value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    private record ConsentKey(BankType bankType, String clientId) {
+    }
+
+    private record CachedConsent(String consentId, Instant expiresAt) {
+
+        boolean isActive() {
+            return expiresAt == null || Instant.now().isBefore(expiresAt);
+        }
+
+        Duration timeToLive(Duration ttl) {
+            if (expiresAt == null) {
+                return ttl;
+            }
+            Duration untilExpiry = Duration.between(Instant.now(), expiresAt);
+            if (untilExpiry.isNegative()) {
+                return Duration.ZERO;
+            }
+            return untilExpiry.compareTo(ttl) < 0 ? untilExpiry : ttl;
+        }
+    }
+
 }
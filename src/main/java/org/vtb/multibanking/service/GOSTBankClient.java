@@ -2,12 +2,16 @@ package org.vtb.multibanking.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.*;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 import org.vtb.multibanking.config.GOSTBankClientConfig;
 import org.vtb.multibanking.model.Amount;
 import org.vtb.multibanking.model.mobile.MobileProduct;
 import org.vtb.multibanking.model.mobile.MobileProvider;
 import org.vtb.multibanking.model.mobile.PhoneNumberInfo;
+import org.vtb.multibanking.service.bank.BankHttpTransport;
+import org.vtb.multibanking.service.bank.BankTokenManager;
+import org.vtb.multibanking.service.bank.BankTokenManagerFactory;
 
 import java.math.BigDecimal;
 import java.time.Instant;
@@ -21,23 +25,24 @@ public class GOSTBankClient {
     private final String clientSecret;
     private final RestTemplate gostRestTemplate;
 
-    private String currentToken;
-    private Instant tokenExpiresAt;
+    private final BankTokenManager tokenManager;
+    private final long tokenDefaultTtlSeconds;
 
-    public GOSTBankClient(GOSTBankClientConfig gostBankClientConfig) {
+    public GOSTBankClient(GOSTBankClientConfig gostBankClientConfig, BankHttpTransport bankHttpTransport, BankTokenManagerFactory tokenManagerFactory) {
         this.GOSTBaseUrl = gostBankClientConfig.getApi().getGostBaseUrl();
         this.authUrl = gostBankClientConfig.getApi().getAuthUrl();
         this.clientId = gostBankClientConfig.getApi().getClientId();
         this.clientSecret = gostBankClientConfig.getApi().getClientSecret();
-        this.gostRestTemplate = new RestTemplate();
+        this.gostRestTemplate = bankHttpTransport.getRestTemplate();
+        this.tokenDefaultTtlSeconds = tokenManagerFactory.getDefaultTtlSeconds();
+        this.tokenManager = tokenManagerFactory.create("GOST", this::requestGOSTToken);
     }
 
     private String getGOSTToken() {
-        if (currentToken != null && tokenExpiresAt != null &&
-                Instant.now().isBefore(tokenExpiresAt)) {
-            return currentToken;
-        }
+        return tokenManager.getToken();
+    }
 
+    private BankTokenManager.Token requestGOSTToken() {
         HttpHeaders httpHeaders = new HttpHeaders();
         httpHeaders.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
         httpHeaders.setAccept(List.of(MediaType.APPLICATION_JSON));
@@ -50,12 +55,11 @@ public class GOSTBankClient {
             );
 
             if (responseEntity.getStatusCode().is2xxSuccessful() && responseEntity.getBody() != null) {
-                currentToken = (String) responseEntity.getBody().get("access_token");
-                Integer expiresIn = (Integer) responseEntity.getBody().get("expires_in");
-                tokenExpiresAt = Instant.now().plusSeconds(expiresIn != null ? expiresIn - 60 : 3500);
+                String accessToken = (String) responseEntity.getBody().get("access_token");
+                Object expiresIn = responseEntity.getBody().get("expires_in");
 
                 log.info("Успешно получен гост-токен");
-                return currentToken;
+                return BankTokenManager.Token.of(accessToken, expiresIn, tokenDefaultTtlSeconds);
             }
         } catch (Exception e) {
             log.error("Не удалось получить гост-токен: {}", e.getMessage());
@@ -63,6 +67,24 @@ public class GOSTBankClient {
         throw new RuntimeException("Не удалось получить гост-токен");
     }
 
+    /* Как в AbstractBankClient: на 401 отклонённый токен сбрасывается и запрос повторяется один раз с новым */
+    private ResponseEntity<Map> exchange(String url, HttpMethod method, Object requestBody, HttpHeaders httpHeaders) {
+        try {
+            return gostRestTemplate.exchange(url, method, new HttpEntity<>(requestBody, httpHeaders), Map.class);
+        } catch (HttpClientErrorException.Unauthorized e) {
+            String authorization = httpHeaders.getFirst(HttpHeaders.AUTHORIZATION);
+            if (authorization == null || !authorization.startsWith("Bearer ")) {
+                throw e;
+            }
+            tokenManager.invalidate(authorization.substring("Bearer ".length()));
+
+            HttpHeaders retried = new HttpHeaders();
+            retried.putAll(httpHeaders);
+            retried.setBearerAuth(getGOSTToken());
+            return gostRestTemplate.exchange(url, method, new HttpEntity<>(requestBody, retried), Map.class);
+        }
+    }
+
     public List<MobileProduct> getMobileProducts() {
         String mobileProductsUrl = GOSTBaseUrl + "/api/rb/pmnt/acceptance/mobile/hackathon/v1/products";
 
@@ -83,8 +105,8 @@ public class GOSTBankClient {
         httpHeaders.set("X-MDM-ID", clientId);
 
         try {
-            ResponseEntity<Map> responseEntity = gostRestTemplate.exchange(
-                    mobileProductsUrl, HttpMethod.POST, new HttpEntity<>(requestBody, httpHeaders), Map.class
+            ResponseEntity<Map> responseEntity = exchange(
+                    mobileProductsUrl, HttpMethod.POST, requestBody, httpHeaders
             );
 
             if (responseEntity.getStatusCode().is2xxSuccessful() && responseEntity.getBody() != null) {
@@ -116,8 +138,8 @@ public class GOSTBankClient {
         httpHeaders.setAccept(List.of(MediaType.APPLICATION_JSON));
 
         try {
-            ResponseEntity<Map> responseEntity = gostRestTemplate.exchange(
-                    phoneInfoUrl, HttpMethod.POST, new HttpEntity<>(requestBody, httpHeaders), Map.class
+            ResponseEntity<Map> responseEntity = exchange(
+                    phoneInfoUrl, HttpMethod.POST, requestBody, httpHeaders
             );
 
             if (responseEntity.getStatusCode().is2xxSuccessful() && responseEntity.getBody() != null) {
@@ -196,8 +218,8 @@ public class GOSTBankClient {
         httpHeaders.set("X-TB-ID", clientId);
 
         try {
-            ResponseEntity<Map> response = gostRestTemplate.exchange(
-                    requestPaymentUrl, HttpMethod.POST, new HttpEntity<>(requestBody, httpHeaders), Map.class
+            ResponseEntity<Map> response = exchange(
+                    requestPaymentUrl, HttpMethod.POST, requestBody, httpHeaders
             );
 
             if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
@@ -235,8 +257,8 @@ public class GOSTBankClient {
         httpHeaders.set("x-user-session-id", paymentId);
 
         try {
-            ResponseEntity<Map> responseEntity = gostRestTemplate.exchange(
-                    confirmPaymentUrl, HttpMethod.POST, new HttpEntity<>(requestBody, httpHeaders), Map.class
+            ResponseEntity<Map> responseEntity = exchange(
+                    confirmPaymentUrl, HttpMethod.POST, requestBody, httpHeaders
             );
 
             if (responseEntity.getStatusCode().is2xxSuccessful() && responseEntity.getBody() != null) {
@@ -259,8 +281,8 @@ public class GOSTBankClient {
         httpHeaders.setAccept(List.of(MediaType.APPLICATION_JSON));
 
         try {
-            ResponseEntity<Map> response = gostRestTemplate.exchange(
-                    startPaymentUrl, HttpMethod.POST, new HttpEntity<>(requestBody, httpHeaders), Map.class
+            ResponseEntity<Map> response = exchange(
+                    startPaymentUrl, HttpMethod.POST, requestBody, httpHeaders
             );
 
             if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
@@ -284,8 +306,8 @@ public class GOSTBankClient {
         httpHeaders.setAccept(List.of(MediaType.APPLICATION_JSON));
 
         try {
-            ResponseEntity<Map> response = gostRestTemplate.exchange(
-                    getPaymentUrl, HttpMethod.GET, new HttpEntity<>(httpHeaders), Map.class
+            ResponseEntity<Map> response = exchange(
+                    getPaymentUrl, HttpMethod.GET, null, httpHeaders
             );
 
             if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
@@ -0,0 +1,79 @@
+package org.vtb.multibanking.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/*
+ Объединение одновременных одинаковых запросов: первый вызов по ключу выполняет загрузку в своём потоке,
+ остальные, пришедшие до её завершения, получают тот же результат или ту же ошибку.
+ Присоединившийся вызов ждёт не дольше своего timeout: срок загрузки задаёт первый вызов, и он может быть
+ длиннее (первая загрузка истории), поэтому по истечении timeout возвращается onTimeout.
+ */
+public class RequestCoalescer<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter originated;
+    private final Counter coalesced;
+    private final Counter timedOut;
+
+    public RequestCoalescer(MeterRegistry meterRegistry, String metricName) {
+        this.originated = meterRegistry.counter(metricName, "type", "originated");
+        this.coalesced = meterRegistry.counter(metricName, "type", "coalesced");
+        this.timedOut = meterRegistry.counter(metricName, "type", "coalesced_timed_out");
+        Gauge.builder(metricName + ".in.flight", inFlight, Map::size).register(meterRegistry);
+    }
+
+    public V execute(K key, Duration timeout, Supplier<V> loader, Supplier<V> onTimeout) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            coalesced.increment();
+            try {
+                return await(existing, timeout);
+            } catch (TimeoutException e) {
+                timedOut.increment();
+                return onTimeout.get();
+            }
+        }
+
+        originated.increment();
+        try {
+            V value = loader.get();
+            created.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, created);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> future, Duration timeout) throws TimeoutException {
+        try {
+            return future.get(Math.max(0, timeout.toNanos()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new CompletionException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package org.vtb.multibanking.service;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.vtb.multibanking.entity.TransactionEntity;
+import org.vtb.multibanking.entity.TransactionSyncStateEntity;
+import org.vtb.multibanking.model.Amount;
+import org.vtb.multibanking.model.BankTransactionCode;
+import org.vtb.multibanking.model.BankType;
+import org.vtb.multibanking.model.Transaction;
+import org.vtb.multibanking.model.TransactionCursor;
+import org.vtb.multibanking.model.TransactionPage;
+import org.vtb.multibanking.repository.TransactionRepository;
+import org.vtb.multibanking.repository.TransactionSyncStateRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/*
+ Локальное хранилище транзакций. После первой полной загрузки счёта у банка запрашиваются
+ только транзакции не раньше watermark - самой поздней bookingDateTime среди уже сохранённых.
+ */
+@Service
+@Slf4j
+public class TransactionSyncService {
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionSyncStateRepository syncStateRepository;
+
+    @Getter
+    private final int pageSize;
+
+    @Getter
+    private final int maxPages;
+
+    private final int recentPerAccount;
+
+    public TransactionSyncService(TransactionRepository transactionRepository,
+                                  TransactionSyncStateRepository syncStateRepository,
+                                  @Value("${app.transactions.page-size:100}") int pageSize,
+                                  @Value("${app.transactions.max-pages:50}") int maxPages,
+                                  @Value("${app.transactions.recent-per-account:100}") int recentPerAccount) {
+        this.transactionRepository = transactionRepository;
+        this.syncStateRepository = syncStateRepository;
+        this.pageSize = pageSize;
+        this.maxPages = maxPages;
+        this.recentPerAccount = recentPerAccount;
+    }
+
+    public Optional<Instant> getWatermark(BankType bankType, String clientId, String accountId) {
+        return syncStateRepository.findById(syncStateId(bankType, clientId, accountId))
+                .map(TransactionSyncStateEntity::getWatermark);
+    }
+
+    /* Банки из bankTypes (пустой список - все), история которых у клиента ещё ни разу не загружалась */
+    public List<BankType> getUnsyncedBanks(String clientId, List<BankType> bankTypes) {
+        Set<BankType> synced = EnumSet.noneOf(BankType.class);
+        syncStateRepository.findByClientId(clientId).forEach(state -> synced.add(state.getBankType()));
+        List<BankType> requested = bankTypes != null && !bankTypes.isEmpty() ? bankTypes : List.of(BankType.values());
+        return requested.stream()
+                .filter(bankType -> !synced.contains(bankType))
+                .distinct()
+                .toList();
+    }
+
+    /*
+     Отметка о загрузке банка целиком - запись без accountId. Без неё банк, где у клиента нет счетов,
+     считался бы незагруженным и опрашивался бы при каждом чтении ленты.
+     */
+    public void markBankSynced(BankType bankType, String clientId) {
+        TransactionSyncStateEntity state = new TransactionSyncStateEntity();
+        state.setId(syncStateId(bankType, clientId, null));
+        state.setBankType(bankType);
+        state.setClientId(clientId);
+        state.setLastSyncedAt(Instant.now());
+        syncStateRepository.save(state);
+    }
+
+    /*
+     Сохраняет новые транзакции счёта, сдвигает watermark и возвращает последние recent-per-account транзакций счёта.
+     Вся история не читается при каждой агрегации - она доступна постранично через getTransactionPage.
+     */
+    public List<Transaction> saveDelta(BankType bankType, String clientId, String accountId, List<Transaction> delta) {
+        Instant now = Instant.now();
+
+        if (!delta.isEmpty()) {
+            List<TransactionEntity> entities = delta.stream()
+                    .map(transaction -> toEntity(bankType, clientId, accountId, transaction, now))
+                    .toList();
+            transactionRepository.saveAll(entities);
+        }
+
+        String stateId = syncStateId(bankType, clientId, accountId);
+        TransactionSyncStateEntity state = syncStateRepository.findById(stateId).orElseGet(() -> {
+            TransactionSyncStateEntity created = new TransactionSyncStateEntity();
+            created.setId(stateId);
+            created.setBankType(bankType);
+            created.setClientId(clientId);
+            created.setAccountId(accountId);
+            return created;
+        });
+        delta.stream()
+                .map(Transaction::getBookingDateTime)
+                .filter(Objects::nonNull)
+                .max(Instant::compareTo)
+                .filter(latest -> state.getWatermark() == null || latest.isAfter(state.getWatermark()))
+                .ifPresent(state::setWatermark);
+        state.setLastSyncedAt(now);
+        syncStateRepository.save(state);
+
+        log.debug("Синхронизация счёта {} банка {}: новых транзакций {}", accountId, bankType, delta.size());
+
+        Pageable recent = PageRequest.of(0, recentPerAccount, Sort.by(Sort.Direction.DESC, "bookingDateTime", "transactionId"));
+        return transactionRepository.findByBankTypeAndAccountId(bankType, accountId, recent).stream()
+                .map(TransactionSyncService::toTransaction)
+                .toList();
+    }
+
+    public long countTransactions(String clientId, List<BankType> bankTypes) {
+        if (bankTypes == null || bankTypes.isEmpty()) {
+            return transactionRepository.countByClientId(clientId);
+        }
+        return transactionRepository.countByClientIdAndBankTypeIn(clientId, bankTypes);
+    }
+
+    /*
+     Лента транзакций клиента от новых к старым. Каждый счёт - отдельный отсортированный поток из хранилища
+     (не больше limit записей после курсора), потоки сливаются кучей: O(limit * log k) для k счетов.
+     */
+    public TransactionPage getTransactionPage(String clientId, List<BankType> bankTypes, int limit, TransactionCursor before) {
+        Pageable page = PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, "bookingDateTime", "transactionId"));
+
+        List<Iterator<Transaction>> accountStreams = new ArrayList<>();
+        for (TransactionSyncStateEntity account : syncStateRepository.findByClientId(clientId)) {
+            if (account.getAccountId() == null) {
+                continue;
+            }
+            if (bankTypes != null && !bankTypes.isEmpty() && !bankTypes.contains(account.getBankType())) {
+                continue;
+            }
+            List<TransactionEntity> entities = before == null
+                    ? transactionRepository.findByBankTypeAndAccountId(account.getBankType(), account.getAccountId(), page)
+                    : transactionRepository.findBefore(account.getBankType(), account.getAccountId(),
+                            before.bookingDateTime(), before.transactionId(), page);
+            accountStreams.add(entities.stream().map(TransactionSyncService::toTransaction).iterator());
+        }
+
+        List<Transaction> transactions = mergeSorted(accountStreams, TransactionCursor.NEWEST_FIRST, limit);
+        String nextCursor = null;
+        if (transactions.size() == limit) {
+            Transaction last = transactions.get(transactions.size() - 1);
+            if (last.getBookingDateTime() != null) {
+                nextCursor = TransactionCursor.of(last).toString();
+            }
+        }
+
+        return TransactionPage.builder()
+                .transactions(transactions)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    static <T> List<T> mergeSorted(List<Iterator<T>> sources, Comparator<T> comparator, int limit) {
+        PriorityQueue<MergeHead<T>> heads = new PriorityQueue<>(Math.max(1, sources.size()),
+                (left, right) -> comparator.compare(left.value(), right.value()));
+        for (Iterator<T> source : sources) {
+            if (source.hasNext()) {
+                heads.add(new MergeHead<>(source.next(), source));
+            }
+        }
+
+        List<T> result = new ArrayList<>(Math.min(limit, 1024));
+        while (result.size() < limit && !heads.isEmpty()) {
+            MergeHead<T> head = heads.poll();
+            result.add(head.value());
+            if (head.source().hasNext()) {
+                heads.add(new MergeHead<>(head.source().next(), head.source()));
+            }
+        }
+        return result;
+    }
+
+    private static TransactionEntity toEntity(BankType bankType, String clientId, String accountId,
+                                              Transaction transaction, Instant syncedAt) {
+        String transactionId = transactionKey(transaction);
+
+        TransactionEntity entity = new TransactionEntity();
+        entity.setId(bankType + ":" + accountId + ":" + transactionId);
+        entity.setBankType(bankType);
+        entity.setClientId(clientId);
+        entity.setAccountId(accountId);
+        entity.setTransactionId(transactionId);
+        if (transaction.getAmount() != null) {
+            entity.setAmount(transaction.getAmount().getAmount());
+            entity.setCurrency(transaction.getAmount().getCurrency());
+        }
+        entity.setCreditDebitIndicator(transaction.getCreditDebitIndicator());
+        entity.setStatus(transaction.getStatus());
+        entity.setBookingDateTime(transaction.getBookingDateTime());
+        entity.setValueDateTime(transaction.getValueDateTime());
+        entity.setTransactionInformation(transaction.getTransactionInformation());
+        if (transaction.getBankTransactionCode() != null) {
+            entity.setBankTransactionCode(transaction.getBankTransactionCode().getCode());
+        }
+        entity.setSyncedAt(syncedAt);
+        return entity;
+    }
+
+    private static Transaction toTransaction(TransactionEntity entity) {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionId(entity.getTransactionId());
+        transaction.setAccountId(entity.getAccountId());
+        if (entity.getAmount() != null) {
+            transaction.setAmount(new Amount(entity.getAmount(), entity.getCurrency()));
+        }
+        transaction.setCreditDebitIndicator(entity.getCreditDebitIndicator());
+        transaction.setStatus(entity.getStatus());
+        transaction.setBookingDateTime(entity.getBookingDateTime());
+        transaction.setValueDateTime(entity.getValueDateTime());
+        transaction.setTransactionInformation(entity.getTransactionInformation());
+        if (entity.getBankTransactionCode() != null) {
+            BankTransactionCode code = new BankTransactionCode();
+            code.setCode(entity.getBankTransactionCode());
+            transaction.setBankTransactionCode(code);
+        }
+        transaction.setBankType(entity.getBankType());
+        return transaction;
+    }
+
+    private static String transactionKey(Transaction transaction) {
+        if (transaction.getTransactionId() != null) {
+            return transaction.getTransactionId();
+        }
+        // Без идентификатора от банка ключ - SHA-256 содержимого транзакции: 32-битный хеш склеивал бы разные транзакции
+        Amount amount = transaction.getAmount();
+        String canonical = String.join("\u0000",
+                String.valueOf(transaction.getBookingDateTime()),
+                amount != null ? String.valueOf(amount.getAmount()) : "",
+                amount != null ? String.valueOf(amount.getCurrency()) : "",
+                String.valueOf(transaction.getCreditDebitIndicator()),
+                String.valueOf(transaction.getTransactionInformation()));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            return "sha256-" + HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+
+    private record MergeHead<T>(T value, Iterator<T> source) {
+    }
+
+    private static String syncStateId(BankType bankType, String clientId, String accountId) {
+        return bankType + ":" + clientId + ":" + accountId;
+    }
+}
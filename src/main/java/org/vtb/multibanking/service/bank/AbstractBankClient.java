@@ -1,69 +1,131 @@
 package org.vtb.multibanking.service.bank;
 
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.*;
-import org.springframework.web.client.DefaultResponseErrorHandler;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+import org.vtb.multibanking.config.ExecutorFactory;
 import org.vtb.multibanking.model.*;
 import org.vtb.multibanking.model.events.AccountEvent;
 import org.vtb.multibanking.model.events.ProductEvent;
 import org.vtb.multibanking.service.integration.BankEventPublisher;
 import org.vtb.multibanking.service.ConsentService;
+import org.vtb.multibanking.service.TransactionSyncService;
+import org.vtb.multibanking.service.bank.dto.BankAccountDto;
+import org.vtb.multibanking.service.bank.dto.BankAmountDto;
+import org.vtb.multibanking.service.bank.dto.BankBalanceDto;
+import org.vtb.multibanking.service.bank.dto.BankCardDto;
+import org.vtb.multibanking.service.bank.dto.BankTransactionDto;
+import org.vtb.multibanking.service.bank.resilience.BankCallPolicy;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Slf4j
 public abstract class AbstractBankClient implements BankClient {
 
+    private static final String BEARER_PREFIX = "Bearer ";
+
     protected final String baseUrl;
     protected final String clientId;
     protected final String clientSecret;
-    protected final RestTemplate restTemplate;
+    protected final BankHttpTransport bankHttpTransport;
+    protected final BankJsonReader jsonReader;
     protected final String userId;
 
-    private String currentToken;
-    private Instant tokenExpiresAt;
+    // Токен и пул запросов общие для всех пользователей банка, согласия - у каждого пользователя свои
+    private final BankTokenManager tokenManager;
 
     private final ConsentService consentService;
-    private String consent;
-    private String productConsent;
+    private final ConsentApprovalPoller consentApprovalPoller;
+    private final TransactionSyncService transactionSyncService;
+    private volatile String consent;
+    private volatile String productConsent;
     private final BankEventPublisher bankEventPublisher;
+    private final Executor accountFetchExecutor;
+    // Тот же лимит account-fetch-concurrency для асинхронного режима, где запросы не занимают потоки пула
+    private final AsyncLimiter accountFetchLimiter;
+    private final long tokenDefaultTtlSeconds;
 
-    public AbstractBankClient(String baseUrl, String clientId, String clientSecret, String userId, ConsentService consentService, BankEventPublisher bankEventPublisher) {
+    public AbstractBankClient(String baseUrl, String clientId, String clientSecret, String userId, int accountFetchConcurrency, BankHttpTransport bankHttpTransport, ExecutorFactory executorFactory, BankTokenManagerFactory tokenManagerFactory, ConsentService consentService, ConsentApprovalPoller consentApprovalPoller, TransactionSyncService transactionSyncService, BankEventPublisher bankEventPublisher) {
         this.baseUrl = baseUrl;
         this.clientId = clientId;
         this.clientSecret = clientSecret;
         this.userId = userId;
-        this.restTemplate = new RestTemplate();
+        this.bankHttpTransport = bankHttpTransport;
+        this.jsonReader = bankHttpTransport.getJsonReader();
         this.consentService = consentService;
+        this.consentApprovalPoller = consentApprovalPoller;
+        this.transactionSyncService = transactionSyncService;
         this.bankEventPublisher = bankEventPublisher;
-        this.restTemplate.setErrorHandler(new DefaultResponseErrorHandler());
+        // При лимите 1 запросы по счетам выполняются последовательно в вызывающем потоке
+        this.accountFetchExecutor = accountFetchConcurrency > 1
+                ? executorFactory.newBoundedExecutor(getBankType().name().toLowerCase() + "-accounts", accountFetchConcurrency)
+                : Runnable::run;
+        this.accountFetchLimiter = new AsyncLimiter(accountFetchConcurrency);
+        this.tokenDefaultTtlSeconds = tokenManagerFactory.getDefaultTtlSeconds();
+        this.tokenManager = tokenManagerFactory.create(getBankType().name(), this::requestToken);
+    }
+
+    protected AbstractBankClient(AbstractBankClient bankClient, String userId) {
+        this.baseUrl = bankClient.baseUrl;
+        this.clientId = bankClient.clientId;
+        this.clientSecret = bankClient.clientSecret;
+        this.userId = userId;
+        this.bankHttpTransport = bankClient.bankHttpTransport;
+        this.jsonReader = bankClient.jsonReader;
+        this.consentService = bankClient.consentService;
+        this.consentApprovalPoller = bankClient.consentApprovalPoller;
+        this.transactionSyncService = bankClient.transactionSyncService;
+        this.bankEventPublisher = bankClient.bankEventPublisher;
+        this.accountFetchExecutor = bankClient.accountFetchExecutor;
+        this.accountFetchLimiter = bankClient.accountFetchLimiter;
+        this.tokenDefaultTtlSeconds = bankClient.tokenDefaultTtlSeconds;
+        this.tokenManager = bankClient.tokenManager;
+    }
+
+    @Override
+    public String getUserId() {
+        return userId;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ExecutorFactory.shutdown(accountFetchExecutor);
     }
 
     protected String getToken() {
-        if (currentToken != null && tokenExpiresAt != null && Instant.now().isBefore(tokenExpiresAt)) {
-            return currentToken;
-        }
+        return tokenManager.getToken();
+    }
 
+    private BankTokenManager.Token requestToken() {
         String tokenUrl = baseUrl + "/auth/bank-token?client_id=" + clientId + "&client_secret=" + clientSecret;
 
         HttpHeaders httpHeaders = new HttpHeaders();
         httpHeaders.set("accept", "application/json");
 
-        ResponseEntity<Map> responseEntity = restTemplate.exchange(
-                tokenUrl, HttpMethod.POST, new HttpEntity<>(httpHeaders), Map.class
+        ResponseEntity<Map> responseEntity = bankHttpTransport.exchange(
+                "auth", tokenUrl, HttpMethod.POST, new HttpEntity<>(httpHeaders), Map.class
         );
 
         if (responseEntity.getStatusCode().is2xxSuccessful() && responseEntity.getBody() != null) {
-            currentToken = (String) responseEntity.getBody().get("access_token");
-            tokenExpiresAt = Instant.now().plusSeconds(23 * 60 * 60);
+            String accessToken = (String) responseEntity.getBody().get("access_token");
+            Object expiresIn = responseEntity.getBody().get("expires_in");
 
-            return  currentToken;
+            return BankTokenManager.Token.of(accessToken, expiresIn, tokenDefaultTtlSeconds);
         }
         throw new RuntimeException("Ошибка получения токена для банка " + getBankType());
     }
@@ -80,19 +142,9 @@ public abstract class AbstractBankClient implements BankClient {
         Optional<String> pendingRequestOpt = consentService.getPendingRequestId(getBankType(), userId);
         if (pendingRequestOpt.isPresent()) {
             String pendingRequestId = pendingRequestOpt.get();
-            log.info("Найдено pending согласие для банка {}. Проверяем статус: {}", getBankType().toString(), pendingRequestId);
-
-            checkConsentStatus(pendingRequestId);
-
-            Optional<String> updatedConsentOpt = consentService.getActiveConsentId(getBankType(), userId);
-            if (updatedConsentOpt.isPresent()) {
-                log.info("Согласие стало активным после проверки: {}", updatedConsentOpt.get());
-                this.consent = updatedConsentOpt.get();
-                return;
-            } else {
-                log.info("Согласие все еще в статусе pending. Используем существующий requestId: {}", pendingRequestId);
-                return;
-            }
+            log.info("Найдено pending согласие для банка {}. Статус проверяется в фоне: {}", getBankType().toString(), pendingRequestId);
+            trackConsentApproval(pendingRequestId);
+            throw new ConsentPendingException(getBankType(), pendingRequestId);
         }
         log.info("Создаем новое согласие для банка {}", getBankType().toString());
 
@@ -112,9 +164,10 @@ public abstract class AbstractBankClient implements BankClient {
         httpHeaders.set("x-requesting-bank", clientId);
         httpHeaders.setContentType(MediaType.APPLICATION_JSON);
 
+        String pendingRequestId = null;
         try {
-            ResponseEntity<Map> responseEntity = restTemplate.exchange(
-                    consentUrl, HttpMethod.POST, new HttpEntity<>(requestBody, httpHeaders), Map.class
+            ResponseEntity<Map> responseEntity = exchange(
+                    "consents", consentUrl, HttpMethod.POST, new HttpEntity<>(requestBody, httpHeaders), Map.class
             );
 
             if (responseEntity.getStatusCode().is2xxSuccessful() && responseEntity.getBody() != null) {
@@ -126,12 +179,9 @@ public abstract class AbstractBankClient implements BankClient {
                     log.info("Успешно получено согласие для банка {}: {}", getBankType().toString(), consentId);
                     return;
                 } else if (status.equals("pending")) {
-                    String requestId = (String) responseEntity.getBody().get("request_id");
-                    consentService.saveConsent(getBankType(), userId, null, requestId, "pending");
-                    log.info("Запрос отправлен на одобрение в банк {}: {}", getBankType().toString(), requestId);
-                    Thread.sleep(5000);
-                    checkConsentStatus(requestId);
-                    return;
+                    pendingRequestId = (String) responseEntity.getBody().get("request_id");
+                    consentService.saveConsent(getBankType(), userId, null, pendingRequestId, "pending");
+                    log.info("Запрос отправлен на одобрение в банк {}: {}", getBankType().toString(), pendingRequestId);
                 }
             }
         } catch (Exception e) {
@@ -139,10 +189,15 @@ public abstract class AbstractBankClient implements BankClient {
             throw e;
         }
 
+        if (pendingRequestId != null) {
+            trackConsentApproval(pendingRequestId);
+            throw new ConsentPendingException(getBankType(), pendingRequestId);
+        }
+
         throw new RuntimeException("Ошибка получения согласия для банка " + getBankType());
     }
 
-    protected void checkConsentStatus(String requestId) {
+    protected Optional<String> checkConsentStatus(String requestId) {
         String token = getToken();
         String statusUrl = baseUrl + "/account-consents/" + requestId;
 
@@ -152,8 +207,8 @@ public abstract class AbstractBankClient implements BankClient {
         httpHeaders.set("x-fapi-interaction-id", clientId);
 
         try {
-            ResponseEntity<Map> responseEntity = restTemplate.exchange(
-                    statusUrl, HttpMethod.GET, new HttpEntity<>(httpHeaders), Map.class
+            ResponseEntity<Map> responseEntity = exchange(
+                    "consents", statusUrl, HttpMethod.GET, new HttpEntity<>(httpHeaders), Map.class
             );
 
             if (responseEntity.getStatusCode().is2xxSuccessful() && responseEntity.getBody() != null) {
@@ -164,8 +219,9 @@ public abstract class AbstractBankClient implements BankClient {
                         String consentId = (String) data.get("consentId");
                         consentService.updateConsentStatus(getBankType(), userId, "approved", consentId);
                         log.info("Согласие успешно авторизовано для банка {}: {}", getBankType().toString(), consentId);
+                        return Optional.ofNullable(consentId).map(String::toLowerCase);
                     } else {
-                        log.info("Статус согласия: {}. Пожалуйста, перейдите в ЛК банка {} и дайте согласие",
+                        log.debug("Статус согласия: {}. Пожалуйста, перейдите в ЛК банка {} и дайте согласие",
                                 status, getBankType().toString());
                     }
                 }
@@ -173,22 +229,32 @@ public abstract class AbstractBankClient implements BankClient {
         } catch (Exception e) {
             log.error("Ошибка проверки статуса согласия: {}", e.getMessage());
         }
+        return Optional.empty();
+    }
+
+    private CompletableFuture<String> trackConsentApproval(String requestId) {
+        return consentApprovalPoller.track(getBankType(), userId, requestId, this::checkConsentStatus);
+    }
+
+    @Override
+    public CompletableFuture<String> awaitConsentApproval() {
+        try {
+            getCurrentConsent();
+            return CompletableFuture.completedFuture(consent);
+        } catch (ConsentPendingException e) {
+            return trackConsentApproval(e.getRequestId());
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
     }
 
     private void getCurrentConsent() throws Exception {
         Optional<String> activeConsentOpt = consentService.getActiveConsentId(getBankType(), userId);
-        if (activeConsentOpt.isEmpty() || consentService.checkActiveConsentExpireTime(activeConsentOpt.get())) {
+        if (activeConsentOpt.isEmpty()) {
+            // Без действующего согласия createConsent либо получает его сразу, либо бросает ConsentPendingException
             createConsent();
 
             activeConsentOpt = consentService.getActiveConsentId(getBankType(), userId);
-            if (activeConsentOpt.isEmpty()) {
-                Optional<String> pendingRequestOpt = consentService.getPendingRequestId(getBankType(), userId);
-                if (pendingRequestOpt.isPresent()) {
-                    checkConsentStatus(pendingRequestOpt.get());
-                    activeConsentOpt = consentService.getActiveConsentId(getBankType(), userId);
-                }
-            }
-
             if (activeConsentOpt.isEmpty()) {
                 throw new Exception("Не удалось получить действующее согласие для банка " + getBankType());
             }
@@ -199,7 +265,7 @@ public abstract class AbstractBankClient implements BankClient {
 
     private void getCurrentProductConsent() throws Exception {
         Optional<String> activeProductConsent = consentService.getActiveProductConsentId(getBankType(), userId);
-        if (activeProductConsent.isEmpty() || consentService.checkActiveProductConsentExpireTime(activeProductConsent.get())) {
+        if (activeProductConsent.isEmpty()) {
             createProductAgreementConsent();
 
             activeProductConsent = consentService.getActiveProductConsentId(getBankType(), userId);
@@ -216,144 +282,283 @@ public abstract class AbstractBankClient implements BankClient {
         getCurrentConsent();
 
         List<Account> accounts = getAccountList();
+
+        List<CompletableFuture<List<Balance>>> balanceFutures = new ArrayList<>(accounts.size());
+        List<CompletableFuture<List<Transaction>>> transactionFutures = new ArrayList<>(accounts.size());
         for (Account account: accounts) {
-            try {
-                List<Balance> balances = getAccountBalances(account.getAccountId());
-                List<Transaction> transactions = getAccountTransactions(account.getAccountId());
-                updateAccountWithBalances(account, balances);
-                account.getTransactions().addAll(transactions);
+            String accountId = account.getAccountId();
+            balanceFutures.add(CompletableFuture.supplyAsync(() -> getAccountBalances(accountId), accountFetchExecutor));
+            transactionFutures.add(CompletableFuture.supplyAsync(() -> getAccountTransactions(accountId), accountFetchExecutor));
+        }
 
-            } catch (Exception e) {
-                log.error("Ошибка при сопоставлении аккаунтов и балансов: {}", e.getMessage());
-                throw e;
-            }
+        for (int i = 0; i < accounts.size(); i++) {
+            applyAccountDetails(accounts.get(i), balanceFutures.get(i), transactionFutures.get(i));
         }
 
         return accounts;
     }
 
-    protected List<Account> getAccountList() throws Exception {
-        if (consent == null) {
-            throw new Exception("Нет согласия на обработку данных из банка " + getBankType().toString());
+    public CompletableFuture<List<Account>> fetchAccountsAsync() {
+        try {
+            getCurrentConsent();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
         }
 
-        String accountUrl = baseUrl + "/accounts?client_id=" + userId;
+        return getHedgedAsync("accounts", baseUrl + "/accounts?client_id=" + userId, this::consentHeaders,
+                body -> jsonReader.readDataList(body, "account", BankAccountDto.class, this::mapToAccount))
+                .thenCompose(accounts -> {
+                    CompletableFuture<?>[] details = accounts.stream()
+                            .map(this::fillAccountDetailsAsync)
+                            .toArray(CompletableFuture[]::new);
+                    return CompletableFuture.allOf(details).thenApply(ignored -> accounts);
+                });
+    }
 
-        HttpHeaders httpHeaders = new HttpHeaders();
-        httpHeaders.setBearerAuth(getToken());
-        httpHeaders.set("accept", "application/json");
-        httpHeaders.set("x-consent-id", consent);
-        httpHeaders.set("x-requesting-bank", clientId);
+    private CompletableFuture<Void> fillAccountDetailsAsync(Account account) {
+        String accountUrl = baseUrl + "/accounts/" + account.getAccountId();
+
+        CompletableFuture<List<Balance>> balances = accountFetchLimiter.submit(() -> getHedgedAsync("balances",
+                accountUrl + "/balances", this::consentHeaders,
+                body -> jsonReader.readDataList(body, "balance", BankBalanceDto.class, this::mapToBalance)));
+        // Все страницы транзакций счёта занимают одно разрешение, как одна задача в синхронном режиме
+        CompletableFuture<List<Transaction>> transactions = accountFetchLimiter.submit(
+                () -> getAccountTransactionsAsync(account.getAccountId()));
+
+        return CompletableFuture.allOf(balances, transactions)
+                .handle((ignored, e) -> {
+                    applyAccountDetails(account, balances, transactions);
+                    return null;
+                });
+    }
 
+    private void applyAccountDetails(Account account, CompletableFuture<List<Balance>> balances,
+                                     CompletableFuture<List<Transaction>> transactions) {
         try {
-            ResponseEntity<Map> responseEntity = restTemplate.exchange(
-                    accountUrl, HttpMethod.GET, new HttpEntity<>(httpHeaders), Map.class
-            );
+            updateAccountWithBalances(account, balances.join());
+        } catch (CompletionException e) {
+            log.error("Ошибка получения баланса счета {} из банка {}: {}", account.getAccountId(), getBankType(), e.getCause().getMessage());
+            account.getFetchErrors().add("Не удалось получить баланс: " + e.getCause().getMessage());
+        }
+        try {
+            account.getTransactions().addAll(transactions.join());
+        } catch (CompletionException e) {
+            log.error("Ошибка получения транзакций счета {} из банка {}: {}", account.getAccountId(), getBankType(), e.getCause().getMessage());
+            account.getFetchErrors().add("Не удалось получить транзакции: " + e.getCause().getMessage());
+        }
+    }
 
-            if (responseEntity.getStatusCode().is2xxSuccessful() && responseEntity.getBody() != null) {
-                Map<String, Object> data = (Map<String, Object>) responseEntity.getBody().get("data");
-                if (data != null) {
-                    List<Map<String, Object>> accountsData = (List<Map<String, Object>>) data.get("account");
-                    if (accountsData != null) {
-                        return accountsData.stream()
-                                .map(this::mapToAccount)
-                                .collect(Collectors.toList());
-                    }
-                }
+    private CompletableFuture<Map<String, Object>> getAsync(String url, Supplier<HttpHeaders> httpHeaders) {
+        return getAsync(url, httpHeaders, jsonReader::readMap);
+    }
+
+    private <T> CompletableFuture<T> getAsync(String url, Supplier<HttpHeaders> httpHeaders,
+                                              BankHttpTransport.BodyReader<T> bodyReader) {
+        return withTokenRetryAsync(httpHeaders, headers -> bankHttpTransport.getAsync(url, headers, bodyReader));
+    }
+
+    /* Идемпотентные чтения, которые можно продублировать по p95 банка, см. BankRequestHedger */
+    private <T> CompletableFuture<T> getHedgedAsync(String endpoint, String url, Supplier<HttpHeaders> httpHeaders,
+                                                    BankHttpTransport.BodyReader<T> bodyReader) {
+        return withTokenRetryAsync(httpHeaders, headers -> bankHttpTransport.getAsyncHedged(endpoint, url, headers, bodyReader));
+    }
+
+    private <T> T getHedged(String endpoint, String url, HttpHeaders httpHeaders, BankHttpTransport.BodyReader<T> bodyReader) {
+        return withTokenRetry(httpHeaders, headers -> bankHttpTransport.getHedged(endpoint, url, headers, bodyReader));
+    }
+
+    private <T> ResponseEntity<T> exchange(String endpoint, String url, HttpMethod method, HttpEntity<?> entity,
+                                           Class<T> responseType) {
+        return withTokenRetry(entity.getHeaders(), headers ->
+                bankHttpTransport.exchange(endpoint, url, method, new HttpEntity<>(entity.getBody(), headers), responseType));
+    }
+
+    /*
+     Банк может отозвать токен раньше срока: на 401 токен сбрасывается и запрос повторяется один раз
+     с новым токеном. Повтор не меняет остальные заголовки, в том числе x-idempotency-key.
+     */
+    private <T> T withTokenRetry(HttpHeaders httpHeaders, Function<HttpHeaders, T> call) {
+        try {
+            return call.apply(httpHeaders);
+        } catch (HttpClientErrorException.Unauthorized e) {
+            if (!invalidateToken(httpHeaders)) {
+                throw e;
             }
+            return call.apply(withFreshToken(httpHeaders));
+        }
+    }
+
+    private <T> CompletableFuture<T> withTokenRetryAsync(Supplier<HttpHeaders> httpHeaders,
+                                                         Function<HttpHeaders, CompletableFuture<T>> call) {
+        HttpHeaders headers;
+        CompletableFuture<T> future;
+        try {
+            headers = httpHeaders.get();
+            future = call.apply(headers);
         } catch (Exception e) {
-            log.error("Ошибка получения информации из банка {}: {}", getBankType().toString(), e.getMessage());
-            throw e;
+            return CompletableFuture.failedFuture(e);
         }
+        return future.exceptionallyCompose(e -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (!(cause instanceof HttpClientErrorException.Unauthorized) || !invalidateToken(headers)) {
+                return CompletableFuture.failedFuture(cause);
+            }
+            try {
+                return call.apply(httpHeaders.get());
+            } catch (Exception retryError) {
+                return CompletableFuture.failedFuture(retryError);
+            }
+        });
+    }
 
-        return List.of();
+    private boolean invalidateToken(HttpHeaders httpHeaders) {
+        String authorization = httpHeaders.getFirst(HttpHeaders.AUTHORIZATION);
+        if (authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+            return false;
+        }
+        tokenManager.invalidate(authorization.substring(BEARER_PREFIX.length()));
+        return true;
     }
 
-    protected List<Balance> getAccountBalances(String accountId) {
-        String balancesUrl = baseUrl + "/accounts/" + accountId + "/balances";
+    private HttpHeaders withFreshToken(HttpHeaders httpHeaders) {
+        HttpHeaders retried = new HttpHeaders();
+        retried.putAll(httpHeaders);
+        retried.setBearerAuth(getToken());
+        return retried;
+    }
 
+    private HttpHeaders consentHeaders() {
         HttpHeaders httpHeaders = new HttpHeaders();
         httpHeaders.setBearerAuth(getToken());
         httpHeaders.set("accept", "application/json");
         httpHeaders.set("x-consent-id", consent);
         httpHeaders.set("x-requesting-bank", clientId);
+        return httpHeaders;
+    }
+
+    private static List<Map<String, Object>> dataList(Map<String, Object> body, String key) {
+        Object data = body.get("data");
+        if (data instanceof Map<?, ?> dataMap && dataMap.get(key) instanceof List<?> list) {
+            return (List<Map<String, Object>>) list;
+        }
+        return List.of();
+    }
+
+    protected List<Account> getAccountList() throws Exception {
+        if (consent == null) {
+            throw new Exception("Нет согласия на обработку данных из банка " + getBankType().toString());
+        }
+
+        String accountUrl = baseUrl + "/accounts?client_id=" + userId;
 
         try {
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    balancesUrl, HttpMethod.GET, new HttpEntity<>(httpHeaders), Map.class);
+            return getHedged("accounts", accountUrl, consentHeaders(),
+                    body -> jsonReader.readDataList(body, "account", BankAccountDto.class, this::mapToAccount));
+        } catch (Exception e) {
+            log.error("Ошибка получения информации из банка {}: {}", getBankType().toString(), e.getMessage());
+            throw e;
+        }
+    }
 
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                Map<String, Object> data = (Map<String, Object>) response.getBody().get("data");
-                if (data != null) {
-                    List<Map<String, Object>> balancesData = (List<Map<String, Object>>) data.get("balance");
-                    if (balancesData != null) {
-                        return balancesData.stream()
-                                .map(this::mapToBalance)
-                                .collect(Collectors.toList());
-                    }
-                }
-            }
+    protected List<Balance> getAccountBalances(String accountId) {
+        String balancesUrl = baseUrl + "/accounts/" + accountId + "/balances";
+
+        try {
+            return getHedged("balances", balancesUrl, consentHeaders(),
+                    body -> jsonReader.readDataList(body, "balance", BankBalanceDto.class, this::mapToBalance));
         } catch (Exception e) {
             log.error("Ошибка получения информации из банка {}: {}", getBankType().toString(), e.getMessage());
             throw e;
         }
-        return List.of();
     }
 
+    /* С банка загружаются только транзакции не раньше watermark счёта, история отдаётся из локального хранилища */
     protected List<Transaction> getAccountTransactions(String accountId) {
-        String transactionUrl = baseUrl + "/accounts/" + accountId + "/transactions";
-
-        HttpHeaders httpHeaders = new HttpHeaders();
-        httpHeaders.setBearerAuth(getToken());
-        httpHeaders.set("accept", "application/json");
-        httpHeaders.set("x-consent-id", consent);
-        httpHeaders.set("x-requesting-bank", clientId);
+        Instant from = transactionSyncService.getWatermark(getBankType(), userId, accountId).orElse(null);
 
         try {
-            ResponseEntity<Map> responseEntity = restTemplate.exchange(
-                    transactionUrl, HttpMethod.GET, new HttpEntity<>(httpHeaders), Map.class
-            );
-
-            if (responseEntity.getStatusCode().is2xxSuccessful() && responseEntity.getBody() != null) {
-                Map<String, Object> data = (Map<String, Object>) responseEntity.getBody().get("data");
-                if (data != null) {
-                    List<Map<String, Object>> transactionData = (List<Map<String, Object>>) data.get("transaction");
-                    if (transactionData != null) {
-                        return transactionData.stream()
-                                .map(this::mapToTransaction)
-                                .collect(Collectors.toList());
-                    }
+            List<Transaction> delta = new ArrayList<>();
+            Set<String> seen = new HashSet<>();
+            for (int page = 1; page <= transactionSyncService.getMaxPages(); page++) {
+                List<Transaction> pageTransactions = getHedged("transactions", transactionsUrl(accountId, from, page), consentHeaders(),
+                        body -> jsonReader.readDataList(body, "transaction", BankTransactionDto.class, this::mapToTransaction));
+                if (!addNewTransactions(pageTransactions, from, seen, delta)) {
+                    break;
                 }
             }
+            return transactionSyncService.saveDelta(getBankType(), userId, accountId, delta);
         } catch (Exception e) {
             log.error("Ошибка получения транзакций для счета {}: {}", accountId, e.getMessage());
+            throw e;
         }
+    }
 
-        return List.of();
+    private CompletableFuture<List<Transaction>> getAccountTransactionsAsync(String accountId) {
+        Instant from;
+        try {
+            from = transactionSyncService.getWatermark(getBankType(), userId, accountId).orElse(null);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return fetchTransactionPagesAsync(accountId, from, 1, new HashSet<>(), new ArrayList<>())
+                .thenApply(delta -> transactionSyncService.saveDelta(getBankType(), userId, accountId, delta));
     }
 
-    private Account mapToAccount(Map<String, Object> accountData) {
-        Account account = new Account();
-        account.setAccountId((String) accountData.get("accountId"));
-        account.setAccountNumber(accountData.containsKey("account_number") ? (String) accountData.get("account_number") : null);
-        account.setStatus((String) accountData.get("status"));
-        account.setCurrency(accountData.containsKey("currency") ? (String) accountData.get("currency") : null);
-        account.setAccountType(accountData.containsKey("accountType") ? (String) accountData.get("accountType") : (String) accountData.get("account_type"));
-        account.setAccountSubType(accountData.containsKey("accountSubType") ? (String) accountData.get("accountSubType") : null);
-        account.setNickname(accountData.containsKey("nickname") ? (String) accountData.get("nickname") : null);
-        account.setOpeningDate(accountData.containsKey("openingDate") ? (String) accountData.get("openingDate") : String.valueOf(Instant.now()));
-
-        if (accountData.containsKey("account")) {
-            List<Map<String, Object>> identificationsData = (List<Map<String, Object>>) accountData.get("account");
-            if (identificationsData != null) {
-                List<AccountIdentification> identifications = identificationsData.stream()
-                        .map(this::mapToAccountIdentification)
-                        .collect(Collectors.toList());
-                account.setAccountIdentifications(identifications);
+    private CompletableFuture<List<Transaction>> fetchTransactionPagesAsync(String accountId, Instant from, int page,
+                                                                         Set<String> seen, List<Transaction> delta) {
+        return getHedgedAsync("transactions", transactionsUrl(accountId, from, page), this::consentHeaders,
+                body -> jsonReader.readDataList(body, "transaction", BankTransactionDto.class, this::mapToTransaction))
+                .thenCompose(pageTransactions -> addNewTransactions(pageTransactions, from, seen, delta)
+                        && page < transactionSyncService.getMaxPages()
+                        ? fetchTransactionPagesAsync(accountId, from, page + 1, seen, delta)
+                        : CompletableFuture.completedFuture(delta));
+    }
+
+    private String transactionsUrl(String accountId, Instant from, int page) {
+        String url = baseUrl + "/accounts/" + accountId + "/transactions?page=" + page
+                + "&limit=" + transactionSyncService.getPageSize();
+        return from != null ? url + "&from_booking_date_time=" + from : url;
+    }
+
+    /*
+     Добавляет в delta новые транзакции страницы и сообщает, нужна ли следующая страница.
+     Если банк игнорирует фильтр по дате или пагинацию, старые и повторные транзакции отбрасываются здесь.
+     */
+    private boolean addNewTransactions(List<Transaction> pageTransactions, Instant from, Set<String> seen,
+                                       List<Transaction> delta) {
+        int added = 0;
+        for (Transaction transaction : pageTransactions) {
+            boolean isNew = from == null || transaction.getBookingDateTime() == null
+                    || !transaction.getBookingDateTime().isBefore(from);
+            if (isNew && (transaction.getTransactionId() == null || seen.add(transaction.getTransactionId()))) {
+                delta.add(transaction);
+                added++;
             }
         }
+        return added > 0 && pageTransactions.size() >= transactionSyncService.getPageSize();
+    }
+
+    private Account mapToAccount(BankAccountDto accountData) {
+        Account account = new Account();
+        account.setAccountId(accountData.accountId());
+        account.setAccountNumber(accountData.accountNumber());
+        account.setStatus(accountData.status());
+        account.setCurrency(accountData.currency());
+        account.setAccountType(accountData.accountType());
+        account.setAccountSubType(accountData.accountSubType());
+        account.setNickname(accountData.nickname());
+        account.setOpeningDate(accountData.openingDate() != null ? accountData.openingDate() : String.valueOf(Instant.now()));
+
+        if (accountData.identifications() != null) {
+            List<AccountIdentification> identifications = accountData.identifications().stream()
+                    .map(identification -> new AccountIdentification(
+                            identification.schemeName(), identification.identification(), identification.name()))
+                    .collect(Collectors.toList());
+            account.setAccountIdentifications(identifications);
+        }
 
-        String accountNumber = (String) accountData.get("account_number");
+        String accountNumber = accountData.accountNumber();
         if (accountNumber != null) {
             AccountIdentification identification = new AccountIdentification();
             identification.setSchemeName("RU.CBR.PAN");
@@ -366,21 +571,13 @@ public abstract class AbstractBankClient implements BankClient {
         return account;
     }
 
-    private AccountIdentification mapToAccountIdentification(Map<String, Object> identificationData) {
-        return new AccountIdentification(
-                (String) identificationData.get("schemeName"),
-                (String) identificationData.get("identification"),
-                (String) identificationData.get("name")
-        );
-    }
-
-    private Balance mapToBalance(Map<String, Object> balanceData) {
+    private Balance mapToBalance(BankBalanceDto balanceData) {
         Balance balance = new Balance();
-        balance.setAccountId((String) balanceData.get("accountId"));
-        balance.setType((String) balanceData.get("type"));
-        balance.setCreditDebitIndicator((String) balanceData.get("creditDebitIndicator"));
+        balance.setAccountId(balanceData.accountId());
+        balance.setType(balanceData.type());
+        balance.setCreditDebitIndicator(balanceData.creditDebitIndicator());
 
-        String dateTimeStr = (String) balanceData.get("dateTime");
+        String dateTimeStr = balanceData.dateTime();
         if (dateTimeStr != null) {
             try {
                 balance.setDateTime(Instant.parse(dateTimeStr));
@@ -389,28 +586,23 @@ public abstract class AbstractBankClient implements BankClient {
             }
         }
 
-        Map<String, Object> amountData = (Map<String, Object>) balanceData.get("amount");
-        if (amountData != null) {
-            Amount amount = new Amount(
-                    (String) amountData.get("amount"),
-                    (String) amountData.get("currency")
-            );
-            balance.setAmount(amount);
+        if (balanceData.amount() != null) {
+            balance.setAmount(mapToAmount(balanceData.amount()));
         }
 
         return balance;
     }
 
-    private Transaction mapToTransaction(Map<String, Object> transactionData) {
+    private Transaction mapToTransaction(BankTransactionDto transactionData) {
         Transaction transaction = new Transaction();
-        transaction.setAccountId((String) transactionData.get("accountId"));
-        transaction.setTransactionId((String) transactionData.get("transactionId"));
-        transaction.setCreditDebitIndicator((String) transactionData.get("creditDebitIndicator"));
-        transaction.setStatus((String) transactionData.get("status"));
-        transaction.setTransactionInformation((String) transactionData.get("transactionInformation"));
+        transaction.setAccountId(transactionData.accountId());
+        transaction.setTransactionId(transactionData.transactionId());
+        transaction.setCreditDebitIndicator(transactionData.creditDebitIndicator());
+        transaction.setStatus(transactionData.status());
+        transaction.setTransactionInformation(transactionData.transactionInformation());
 
-        String bookingDateTimeStr = (String) transactionData.get("bookingDateTime");
-        String valueDateTimeStr = (String) transactionData.get("valueDateTime");
+        String bookingDateTimeStr = transactionData.bookingDateTime();
+        String valueDateTimeStr = transactionData.valueDateTime();
 
         if (bookingDateTimeStr != null) {
             try {
@@ -428,18 +620,13 @@ public abstract class AbstractBankClient implements BankClient {
             }
         }
 
-        Map<String, Object> amountData = (Map<String, Object>) transactionData.get("amount");
-        if (amountData != null) {
-            Amount amount = new Amount();
-            amount.setAmount((String) amountData.get("amount"));
-            amount.setCurrency((String) amountData.get("curremcy"));
-            transaction.setAmount(amount);
+        if (transactionData.amount() != null) {
+            transaction.setAmount(mapToAmount(transactionData.amount()));
         }
 
-        Map<String, Object> codeData = (Map<String, Object>) transactionData.get("bankTransactionCode");
-        if (codeData != null) {
+        if (transactionData.bankTransactionCode() != null) {
             BankTransactionCode code = new BankTransactionCode();
-            code.setCode((String) codeData.get("code"));
+            code.setCode(transactionData.bankTransactionCode().code());
             transaction.setBankTransactionCode(code);
         }
 
@@ -448,12 +635,16 @@ public abstract class AbstractBankClient implements BankClient {
         return transaction;
     }
 
+    private static Amount mapToAmount(BankAmountDto amountData) {
+        return new Amount(amountData.amount(), amountData.currency());
+    }
+
     private void updateAccountWithBalances(Account account, List<Balance> balances) {
         for (Balance balance : balances) {
             if (balance.isAvailableBalance()) {
-                account.setAvailableBalance(balance.getAmount().getAmountValue());
+                account.setAvailableMoney(balance.getAmount().getMoney());
             } else if (balance.isCurrentBalance()) {
-                account.setCurrentBalance(balance.getAmount().getAmountValue());
+                account.setCurrentMoney(balance.getAmount().getMoney());
                 account.setLastUpdated(balance.getDateTime());
             }
         }
@@ -476,8 +667,8 @@ public abstract class AbstractBankClient implements BankClient {
         httpHeaders.set("x-requesting-bank", clientId);
 
         try {
-            ResponseEntity<Map> responseEntity = restTemplate.exchange(
-                    consentUrl, HttpMethod.POST, new HttpEntity<>(requestBody, httpHeaders), Map.class
+            ResponseEntity<Map> responseEntity = exchange(
+                    "payment-consents", consentUrl, HttpMethod.POST, new HttpEntity<>(requestBody, httpHeaders), Map.class
             );
 
             if (responseEntity.getStatusCode().is2xxSuccessful() && responseEntity.getBody() != null) {
@@ -524,10 +715,12 @@ public abstract class AbstractBankClient implements BankClient {
         httpHeaders.set("client_id", userId);
         httpHeaders.set("x-requesting-bank", clientId);
         httpHeaders.set("x-payment-consent-id", consent);
+        // Один ключ на платёж: с ним запрос можно безопасно повторить при 5xx или обрыве соединения
+        httpHeaders.set(BankCallPolicy.IDEMPOTENCY_KEY_HEADER, UUID.randomUUID().toString());
 
         try {
-            ResponseEntity<Map> responseEntity = restTemplate.exchange(
-                    paymentUrl, HttpMethod.POST, new HttpEntity<>(requestBody, httpHeaders), Map.class
+            ResponseEntity<Map> responseEntity = exchange(
+                    "payments", paymentUrl, HttpMethod.POST, new HttpEntity<>(requestBody, httpHeaders), Map.class
             );
 
             if (responseEntity.getStatusCode().is2xxSuccessful() && responseEntity.getBody() != null) {
@@ -569,27 +762,28 @@ public abstract class AbstractBankClient implements BankClient {
         httpHeaders.set("accept", "application/json");
 
         try {
-            ResponseEntity<Map> responseEntity = restTemplate.exchange(
-                    catalogUrl, HttpMethod.GET, new HttpEntity<>(httpHeaders), Map.class
-            );
-
-            if (responseEntity.getStatusCode().is2xxSuccessful() && responseEntity.getBody() != null) {
-                Map<String, Object> data = (Map<String, Object>) responseEntity.getBody().get("data");
-                if (data != null) {
-                    List<Map<String, Object>> productsData = (List<Map<String, Object>>) data.get("product");
-                    if (productsData != null) {
-                        return productsData.stream()
-                                .map(this::mapToProduct)
-                                .collect(Collectors.toList());
-                    }
-                }
-            }
+            Map<String, Object> body = getHedged("products", catalogUrl, httpHeaders, jsonReader::readMap);
+            return dataList(body, "product").stream()
+                    .map(this::mapToProduct)
+                    .collect(Collectors.toList());
         } catch (Exception e) {
             log.error("Не удалось раздобыть катоалог продуктов банка {}: {}", getBankType(), e.getMessage());
         }
         return List.of();
     }
 
+    public CompletableFuture<List<Product>> getProductsCatalogAsync() {
+        return getHedgedAsync("products", baseUrl + "/products", () -> {
+                    HttpHeaders httpHeaders = new HttpHeaders();
+                    httpHeaders.setBearerAuth(getToken());
+                    httpHeaders.set("accept", "application/json");
+                    return httpHeaders;
+                }, jsonReader::readMap)
+                .thenApply(body -> dataList(body, "product").stream()
+                        .map(this::mapToProduct)
+                        .collect(Collectors.toList()));
+    }
+
     private Product mapToProduct(Map<String, Object> productData) {
         Product product = new Product();
 
@@ -625,8 +819,8 @@ public abstract class AbstractBankClient implements BankClient {
         httpHeaders.setContentType(MediaType.APPLICATION_JSON);
 
         try {
-            ResponseEntity<Map> responseEntity = restTemplate.exchange(
-                    createAccountUrl, HttpMethod.POST, new HttpEntity<>(requestBody, httpHeaders), Map.class
+            ResponseEntity<Map> responseEntity = exchange(
+                    "accounts", createAccountUrl, HttpMethod.POST, new HttpEntity<>(requestBody, httpHeaders), Map.class
             );
 
             log.info(responseEntity.toString());
@@ -634,7 +828,7 @@ public abstract class AbstractBankClient implements BankClient {
             if (responseEntity.getStatusCode().is2xxSuccessful() && responseEntity.getBody() != null) {
                 Map<String, Object> accountData = (Map<String, Object>) responseEntity.getBody().get("data");
 
-                Account newAccount = mapToAccount(accountData);
+                Account newAccount = mapToAccount(jsonReader.convert(accountData, BankAccountDto.class));
 
                 bankEventPublisher.publishAccountEvent(
                         newAccount, userId, AccountEvent.AccountEventType.OPENED
@@ -670,8 +864,8 @@ public abstract class AbstractBankClient implements BankClient {
         httpHeaders.setContentType(MediaType.APPLICATION_JSON);
 
         try {
-            ResponseEntity<Map> responseEntity = restTemplate.exchange(
-                    closeAccountUrl, HttpMethod.PUT, new HttpEntity<>(requestBody, httpHeaders), Map.class
+            ResponseEntity<Map> responseEntity = exchange(
+                    "accounts", closeAccountUrl, HttpMethod.PUT, new HttpEntity<>(requestBody, httpHeaders), Map.class
             );
 
             if (responseEntity.getStatusCode().is2xxSuccessful()) {
@@ -709,8 +903,8 @@ public abstract class AbstractBankClient implements BankClient {
         httpHeaders.set("client_id", userId);
 
         try {
-            ResponseEntity<Map> responseEntity = restTemplate.exchange(
-                    consentUrl, HttpMethod.POST, new HttpEntity<>(requestBody, httpHeaders), Map.class
+            ResponseEntity<Map> responseEntity = exchange(
+                    "product-consents", consentUrl, HttpMethod.POST, new HttpEntity<>(requestBody, httpHeaders), Map.class
             );
 
             if (responseEntity.getStatusCode().is2xxSuccessful() && responseEntity.getBody() != null) {
@@ -751,8 +945,8 @@ public abstract class AbstractBankClient implements BankClient {
         httpHeaders.setContentType(MediaType.APPLICATION_JSON);
 
         try {
-            ResponseEntity<Map> responseEntity = restTemplate.exchange(
-                    getProductUrl, HttpMethod.POST, new HttpEntity<>(requestBody, httpHeaders), Map.class
+            ResponseEntity<Map> responseEntity = exchange(
+                    "product-agreements", getProductUrl, HttpMethod.POST, new HttpEntity<>(requestBody, httpHeaders), Map.class
             );
 
             if (responseEntity.getStatusCode().is2xxSuccessful() && responseEntity.getBody() != null) {
@@ -790,8 +984,8 @@ public abstract class AbstractBankClient implements BankClient {
         httpHeaders.set("x-requesting-bank", clientId);
 
         try {
-            ResponseEntity<Map> responseEntity = restTemplate.exchange(
-                    getProductListUrl, HttpMethod.GET, new HttpEntity<>(httpHeaders), Map.class
+            ResponseEntity<Map> responseEntity = exchange(
+                    "product-agreements", getProductListUrl, HttpMethod.GET, new HttpEntity<>(httpHeaders), Map.class
             );
 
             if (responseEntity.getStatusCode().is2xxSuccessful() && responseEntity.getBody() != null) {
@@ -808,6 +1002,29 @@ public abstract class AbstractBankClient implements BankClient {
         return List.of();
     }
 
+    public CompletableFuture<List<Product>> getUserProductListAsync() {
+        try {
+            getCurrentProductConsent();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return getAsync(baseUrl + "/product-agreements?client_id=" + userId, () -> {
+                    HttpHeaders httpHeaders = new HttpHeaders();
+                    httpHeaders.setBearerAuth(getToken());
+                    httpHeaders.set("accept", "application/json");
+                    httpHeaders.set("client_id", userId);
+                    httpHeaders.set("x-product-agreement-consent-id", productConsent);
+                    httpHeaders.set("x-requesting-bank", clientId);
+                    return httpHeaders;
+                })
+                .thenApply(body -> body.get("data") instanceof List<?> productsData
+                        ? productsData.stream()
+                                .map(productData -> mapToProduct((Map<String, Object>) productData))
+                                .collect(Collectors.toList())
+                        : List.of());
+    }
+
     public boolean deleteProduct(String agreementId, String repaymentAccountId, BigDecimal repaymentAmount) throws Exception {
        getCurrentProductConsent();
 
@@ -828,8 +1045,8 @@ public abstract class AbstractBankClient implements BankClient {
         httpHeaders.setContentType(MediaType.APPLICATION_JSON);
 
         try {
-            ResponseEntity<Map> responseEntity = restTemplate.exchange(
-                    deleteProductUrl, HttpMethod.DELETE, new HttpEntity<>(requestBody, httpHeaders), Map.class
+            ResponseEntity<Map> responseEntity = exchange(
+                    "product-agreements", deleteProductUrl, HttpMethod.DELETE, new HttpEntity<>(requestBody, httpHeaders), Map.class
             );
 
             if (responseEntity.getStatusCode().is2xxSuccessful() && responseEntity.getBody() != null) {
@@ -850,34 +1067,24 @@ public abstract class AbstractBankClient implements BankClient {
 
         String cardsUrl = baseUrl + "/cards?client_id=" + userId;
 
-        HttpHeaders httpHeaders = new HttpHeaders();
-        httpHeaders.setBearerAuth(getToken());
-        httpHeaders.set("accept", "application/json");
-        httpHeaders.set("x-consent-id", consent);
-        httpHeaders.set("x-requesting-bank", clientId);
-
         try {
-            ResponseEntity<Map> responseEntity = restTemplate.exchange(
-                    cardsUrl, HttpMethod.GET, new HttpEntity<>(httpHeaders), Map.class
-            );
-
-            if (responseEntity.getStatusCode().is2xxSuccessful() && responseEntity.getBody() != null) {
-                Map<String, Object> data = (Map<String, Object>) responseEntity.getBody().get("data");
-                if (data != null) {
-                    List<Map<String, Object>> cardsData = (List<Map<String, Object>>) data.get("cards");
-                    if (cardsData != null) {
-                        return cardsData.stream()
-                                .map(this::mapToCard)
-                                .collect(Collectors.toList());
-                    }
-                }
-            }
+            return getHedged("cards", cardsUrl, consentHeaders(),
+                    body -> jsonReader.readDataList(body, "cards", BankCardDto.class, this::mapToCard));
         } catch (Exception e) {
             log.error("Ошибка получения списка карт: {}", e.getMessage());
             throw e;
         }
+    }
 
-        return List.of();
+    public CompletableFuture<List<Card>> getCardsAsync() {
+        try {
+            getCurrentConsent();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return getHedgedAsync("cards", baseUrl + "/cards?client_id=" + userId, this::consentHeaders,
+                body -> jsonReader.readDataList(body, "cards", BankCardDto.class, this::mapToCard));
     }
 
     public Card getCardDetails(String cardId) throws Exception {
@@ -892,13 +1099,13 @@ public abstract class AbstractBankClient implements BankClient {
         httpHeaders.set("x-requesting-bank", clientId);
 
         try {
-            ResponseEntity<Map> responseEntity = restTemplate.exchange(
-                    cardUrl, HttpMethod.GET, new HttpEntity<>(httpHeaders), Map.class
+            ResponseEntity<Map> responseEntity = exchange(
+                    "cards", cardUrl, HttpMethod.GET, new HttpEntity<>(httpHeaders), Map.class
             );
 
             if (responseEntity.getStatusCode().is2xxSuccessful() && responseEntity.getBody() != null) {
                 Map<String, Object> cardData = (Map<String, Object>) responseEntity.getBody().get("data");
-                return mapToCard(cardData);
+                return mapToCard(jsonReader.convert(cardData, BankCardDto.class));
             }
         } catch (Exception e) {
             log.error("Ошибка получения деталей карты {}: {}", cardId, e.getMessage());
@@ -927,13 +1134,13 @@ public abstract class AbstractBankClient implements BankClient {
         httpHeaders.setContentType(MediaType.APPLICATION_JSON);
 
         try {
-            ResponseEntity<Map> responseEntity = restTemplate.exchange(
-                    createCardUrl, HttpMethod.POST, new HttpEntity<>(requestBody, httpHeaders), Map.class
+            ResponseEntity<Map> responseEntity = exchange(
+                    "cards", createCardUrl, HttpMethod.POST, new HttpEntity<>(requestBody, httpHeaders), Map.class
             );
 
             if (responseEntity.getStatusCode().is2xxSuccessful() && responseEntity.getBody() != null) {
                 Map<String, Object> cardData = (Map<String, Object>) responseEntity.getBody().get("data");
-                Card newCard = mapToCard(cardData);
+                Card newCard = mapToCard(jsonReader.convert(cardData, BankCardDto.class));
                 log.info("Карта успешно создана: {} для счета {}", newCard.getCardId(), accountNumber);
                 return newCard;
             }
@@ -957,8 +1164,8 @@ public abstract class AbstractBankClient implements BankClient {
         httpHeaders.set("x-requesting-bank", clientId);
 
         try {
-            ResponseEntity<Map> responseEntity = restTemplate.exchange(
-                    deleteCardUrl, HttpMethod.DELETE, new HttpEntity<>(httpHeaders), Map.class
+            ResponseEntity<Map> responseEntity = exchange(
+                    "cards", deleteCardUrl, HttpMethod.DELETE, new HttpEntity<>(httpHeaders), Map.class
             );
 
             return responseEntity.getStatusCode().is2xxSuccessful();
@@ -968,78 +1175,56 @@ public abstract class AbstractBankClient implements BankClient {
         }
     }
 
-    private Card mapToCard(Map<String, Object> cardData) {
+    private Card mapToCard(BankCardDto cardData) {
         if (cardData == null) return null;
 
         Card card = new Card();
 
-        card.setCardId(getStringSafe(cardData, "card_id", "cardId"));
-        card.setCardNumber(getStringSafe(cardData, "card_number", "cardNumber"));
-        card.setCardName(getStringSafe(cardData, "card_name", "cardName"));
-        card.setCardType(getStringSafe(cardData, "card_type", "cardType"));
-        card.setStatus(getStringSafe(cardData, "status"));
-        card.setAccountNumber(getStringSafe(cardData, "account_number", "accountNumber"));
-        card.setBalance(new BigDecimal(getStringSafe(cardData, "accountBalance")));
+        card.setCardId(orNotAvailable(cardData.cardId()));
+        card.setCardNumber(orNotAvailable(cardData.cardNumber()));
+        card.setCardName(orNotAvailable(cardData.cardName()));
+        card.setCardType(orNotAvailable(cardData.cardType()));
+        card.setStatus(orNotAvailable(cardData.status()));
+        card.setAccountNumber(orNotAvailable(cardData.accountNumber()));
+        card.setBalance(cardData.accountBalance());
         card.setBankType(getBankType());
 
 
-        if (cardData.containsKey("issue_date")) {
+        if (cardData.issueDate() != null) {
             try {
-                card.setIssueDate(Instant.parse((String) cardData.get("issue_date")));
+                card.setIssueDate(Instant.parse(cardData.issueDate()));
             } catch (Exception e) {
-                log.warn("Ошибка парсинга даты выпуска карты: {}", cardData.get("issue_date"));
+                log.warn("Ошибка парсинга даты выпуска карты: {}", cardData.issueDate());
                 card.setIssueDate(Instant.now());
             }
         } else {
             card.setIssueDate(Instant.now());
         }
 
-        if (cardData.containsKey("expiry_date")) {
+        if (cardData.expiryDate() != null) {
             try {
-                card.setExpiryDate(Instant.parse((String) cardData.get("expiry_date")));
+                card.setExpiryDate(Instant.parse(cardData.expiryDate()));
             } catch (Exception e) {
-                log.warn("Ошибка парсинга даты expiry карты: {}", cardData.get("expiry_date"));
+                log.warn("Ошибка парсинга даты expiry карты: {}", cardData.expiryDate());
                 card.setExpiryDate(Instant.now().plusSeconds(365 * 24 * 60 * 60)); // +1 год
             }
         } else {
             card.setExpiryDate(Instant.now().plusSeconds(365 * 24 * 60 * 60));
         }
 
-        if (cardData.containsKey("limits")) {
-            Map<String, Object> limitsData = (Map<String, Object>) cardData.get("limits");
+        if (cardData.limits() != null) {
             CardLimits limits = new CardLimits();
-
-            if (limitsData != null) {
-                try {
-                    if (limitsData.get("daily_limit") != null) {
-                        limits.setDailyLimit(new BigDecimal(limitsData.get("daily_limit").toString()));
-                    }
-                    if (limitsData.get("monthly_limit") != null) {
-                        limits.setMonthlyLimit(new BigDecimal(limitsData.get("monthly_limit").toString()));
-                    }
-                    if (limitsData.get("single_transaction_limit") != null) {
-                        limits.setSingleTransactionLimit(new BigDecimal(limitsData.get("single_transaction_limit").toString()));
-                    }
-                    if (limitsData.get("currency") != null) {
-                        limits.setCurrency(limitsData.get("currency").toString());
-                    }
-                } catch (Exception e) {
-                    log.warn("Ошибка парсинга лимитов карты: {}", e.getMessage());
-                }
-            }
-
+            limits.setDailyLimit(cardData.limits().dailyLimit());
+            limits.setMonthlyLimit(cardData.limits().monthlyLimit());
+            limits.setSingleTransactionLimit(cardData.limits().singleTransactionLimit());
+            limits.setCurrency(cardData.limits().currency());
             card.setLimits(limits);
         }
 
         return card;
     }
 
-    private String getStringSafe(Map<String, Object> data, String... keys) {
-        for (String key : keys) {
-            if (data.containsKey(key) && data.get(key) != null) {
-                return data.get(key).toString();
-            }
-        }
-        return "N/A";
+    private static String orNotAvailable(String value) {
+        return value != null ? value : "N/A";
     }
-}
\ No newline at end of file
+}
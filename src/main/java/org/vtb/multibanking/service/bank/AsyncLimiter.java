@@ -0,0 +1,81 @@
+package org.vtb.multibanking.service.bank;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/*
+ Ограничение числа одновременно выполняемых асинхронных операций без блокировки потоков:
+ операция сверх лимита ставится в очередь и запускается, когда завершится одна из выполняющихся.
+ */
+final class AsyncLimiter {
+
+    private final int maxConcurrent;
+    private final Queue<Runnable> waiting = new ArrayDeque<>();
+    private int active;
+    // Поток, который уже запускает операции из очереди, повторно в drain() не входит
+    private final ThreadLocal<Boolean> draining = ThreadLocal.withInitial(() -> false);
+
+    AsyncLimiter(int maxConcurrent) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+    }
+
+    <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> operation) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        synchronized (this) {
+            waiting.add(() -> {
+                CompletableFuture<T> future;
+                try {
+                    future = operation.get();
+                } catch (Exception e) {
+                    future = CompletableFuture.failedFuture(e);
+                }
+                future.whenComplete((value, e) -> {
+                    release();
+                    if (e != null) {
+                        result.completeExceptionally(e);
+                    } else {
+                        result.complete(value);
+                    }
+                });
+            });
+        }
+        drain();
+        return result;
+    }
+
+    private void release() {
+        synchronized (this) {
+            active--;
+        }
+        drain();
+    }
+
+    /*
+     Операции запускаются в цикле, а не рекурсивно: уже завершённая операция (открытый breaker,
+     нет токена) освобождает место внутри run(), и вложенный drain() только возвращается -
+     следующую операцию запустит этот же цикл. Так длинная очередь не переполняет стек.
+     */
+    private void drain() {
+        if (draining.get()) {
+            return;
+        }
+        draining.set(true);
+        try {
+            while (true) {
+                Runnable next;
+                synchronized (this) {
+                    if (active >= maxConcurrent || waiting.isEmpty()) {
+                        return;
+                    }
+                    next = waiting.poll();
+                    active++;
+                }
+                next.run();
+            }
+        } finally {
+            draining.set(false);
+        }
+    }
+}
@@ -4,18 +4,26 @@ import org.vtb.multibanking.model.*;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface BankClient {
     BankType getBankType();
+    String getUserId();
+    BankClient forUser(String userId);
+    CompletableFuture<String> awaitConsentApproval();
     List<Account> fetchAccounts() throws Exception;
+    CompletableFuture<List<Account>> fetchAccountsAsync();
     Account createAccount(String accountType, BigDecimal initialBalance) throws Exception;
     String createPayment(String debtorAccount, String creditorAccount, Amount amount, BankType bankType) throws Exception;
     List<Product> getProductsCatalog();
+    CompletableFuture<List<Product>> getProductsCatalogAsync();
     boolean getProduct(String productId, BigDecimal amount, String sourceAccountId) throws Exception;
     List<Product> getUserProductList() throws Exception;
+    CompletableFuture<List<Product>> getUserProductListAsync();
     boolean deleteProduct(String agreementId, String repaymentAccountId, BigDecimal repaymentAmount) throws Exception;
     boolean closeAccount(String accountId, String action, String destinationAccountId) throws Exception;
     List<Card> getCards() throws Exception;
+    CompletableFuture<List<Card>> getCardsAsync();
     Card createCard(String accountNumber, String cardType, String cardName) throws Exception;
     boolean deleteCard(String cardId) throws Exception;
 }
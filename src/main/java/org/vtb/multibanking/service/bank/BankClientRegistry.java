@@ -0,0 +1,71 @@
+package org.vtb.multibanking.service.bank;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.vtb.multibanking.config.BankConfig;
+import org.vtb.multibanking.model.BankType;
+import org.vtb.multibanking.service.bank.resilience.BankResilienceRegistry;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class BankClientRegistry {
+
+    private final Map<BankType, BankClient> bankClients;
+    private final Cache<BankClientKey, BankClient> userClients;
+
+    public BankClientRegistry(List<BankClient> clients, BankConfig bankConfig, MeterRegistry meterRegistry,
+                              BankResilienceRegistry resilienceRegistry) {
+        this.bankClients = clients.stream()
+                .collect(Collectors.toMap(
+                        BankClient::getBankType,
+                        client -> new ResilientBankClient(client, resilienceRegistry.forBank(client.getBankType()))
+                ));
+        this.userClients = Caffeine.newBuilder()
+                .maximumSize(bankConfig.getRegistry().getMaxUsers())
+                .expireAfterAccess(bankConfig.getRegistry().getIdleTtl())
+                .removalListener((BankClientKey key, BankClient client, RemovalCause cause) ->
+                        log.debug("Клиент банка {} для пользователя {} удалён из реестра: {}", key.bankType(), key.userId(), cause))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, userClients, "bank.clients");
+    }
+
+    public BankClient getBankClient(BankType bankType) {
+        BankClient client = bankClients.get(bankType);
+        if (client == null) {
+            throw new IllegalArgumentException("Банк " + bankType + " не поддерживается");
+        }
+        return client;
+    }
+
+    public BankClient getBankClient(BankType bankType, String userId) {
+        BankClient client = getBankClient(bankType);
+        if (userId == null || userId.equals(client.getUserId())) {
+            return client;
+        }
+        return userClients.get(new BankClientKey(bankType, userId), key -> client.forUser(key.userId()));
+    }
+
+    public List<BankClient> getBankClients(String userId) {
+        return bankClients.keySet().stream()
+                .sorted()
+                .map(bankType -> getBankClient(bankType, userId))
+                .toList();
+    }
+
+    public long size() {
+        return userClients.estimatedSize();
+    }
+
+    private record BankClientKey(BankType bankType, String userId) {
+    }
+}
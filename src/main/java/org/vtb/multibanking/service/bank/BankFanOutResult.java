@@ -0,0 +1,24 @@
+package org.vtb.multibanking.service.bank;
+
+import org.vtb.multibanking.model.BankAggregationStatus;
+import org.vtb.multibanking.model.BankFetchStatus;
+import org.vtb.multibanking.model.BankType;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/* Ответы банков, уложившихся в срок, и статус каждого опрошенного банка */
+public record BankFanOutResult<R>(Map<BankType, R> results, Map<BankType, BankAggregationStatus> bankStatuses) {
+
+    public boolean partial() {
+        return bankStatuses.values().stream().anyMatch(status -> status.getStatus() != BankFetchStatus.COMPLETE);
+    }
+
+    public <E> List<E> merge(Function<R, ? extends Collection<E>> items) {
+        return results.values().stream()
+                .flatMap(result -> items.apply(result).stream())
+                .toList();
+    }
+}
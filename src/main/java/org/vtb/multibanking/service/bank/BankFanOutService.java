@@ -0,0 +1,158 @@
+package org.vtb.multibanking.service.bank;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.vtb.multibanking.config.ExecutorFactory;
+import org.vtb.multibanking.model.BankAggregationStatus;
+import org.vtb.multibanking.model.BankFetchStatus;
+import org.vtb.multibanking.model.BankType;
+import org.vtb.multibanking.service.bank.resilience.BankResilienceRegistry;
+import org.vtb.multibanking.service.bank.resilience.BankUnavailableException;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/*
+ Опрос нескольких банков одним запросом: вызовы идут параллельно и ждутся до общего срока,
+ время ответа равно самому медленному банку, а не сумме. Банки, не уложившиеся в срок или ответившие ошибкой,
+ попадают в bankStatuses, их данные в результат не входят.
+ */
+@Slf4j
+@Service
+public class BankFanOutService {
+
+    private final BankService bankService;
+    private final BankResilienceRegistry resilienceRegistry;
+    private final Executor executor;
+    private final Duration defaultDeadline;
+
+    public BankFanOutService(BankService bankService, BankResilienceRegistry resilienceRegistry,
+                             ExecutorFactory executorFactory,
+                             @Value("${app.fan-out.concurrency:32}") int concurrency,
+                             @Value("${app.fan-out.deadline:5s}") Duration defaultDeadline) {
+        this.bankService = bankService;
+        this.resilienceRegistry = resilienceRegistry;
+        this.executor = executorFactory.newBoundedExecutor("bank-fan-out", concurrency);
+        this.defaultDeadline = defaultDeadline;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ExecutorFactory.shutdown(executor);
+    }
+
+    public static List<BankType> allBanks() {
+        return Arrays.asList(BankType.values());
+    }
+
+    /* Для асинхронных методов клиента: вызовы уже неблокирующие, пул не нужен */
+    public <R> BankFanOutResult<R> fanOutAsync(String userId, Collection<BankType> bankTypes,
+                                               Function<BankClient, CompletableFuture<R>> call) {
+        return fanOutAsync(userId, bankTypes, call, defaultDeadline);
+    }
+
+    public <R> BankFanOutResult<R> fanOutAsync(String userId, Collection<BankType> bankTypes,
+                                               Function<BankClient, CompletableFuture<R>> call, Duration deadline) {
+        return collect(bankTypes, bankType -> call.apply(bankService.getBankClient(bankType, userId)), deadline);
+    }
+
+    /* Для блокирующих методов клиента: каждый банк опрашивается в общем пуле bank-fan-out */
+    public <R> BankFanOutResult<R> fanOut(String userId, Collection<BankType> bankTypes, BankCall<R> call) {
+        return fanOut(userId, bankTypes, call, defaultDeadline);
+    }
+
+    public <R> BankFanOutResult<R> fanOut(String userId, Collection<BankType> bankTypes, BankCall<R> call, Duration deadline) {
+        return collect(bankTypes, bankType -> CompletableFuture.supplyAsync(() -> {
+            try {
+                return call.call(bankService.getBankClient(bankType, userId));
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor), deadline);
+    }
+
+    private <R> BankFanOutResult<R> collect(Collection<BankType> bankTypes,
+                                            Function<BankType, CompletableFuture<R>> start, Duration deadline) {
+        long startedAt = System.nanoTime();
+        Map<BankType, CompletableFuture<R>> futures = new LinkedHashMap<>();
+        Map<BankType, Long> latencies = new ConcurrentHashMap<>();
+        for (BankType bankType : bankTypes) {
+            CompletableFuture<R> future;
+            try {
+                future = start.apply(bankType);
+            } catch (Exception e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            futures.put(bankType, future.whenComplete((result, e) ->
+                    latencies.put(bankType, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt))));
+        }
+
+        try {
+            CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new))
+                    .get(deadline.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // Статус каждого банка разбирается по его собственному future
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long deadlineLatency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+
+        Map<BankType, R> results = new EnumMap<>(BankType.class);
+        Map<BankType, BankAggregationStatus> bankStatuses = new EnumMap<>(BankType.class);
+        futures.forEach((bankType, future) -> {
+            BankAggregationStatus status;
+            if (!future.isDone()) {
+                log.warn("Банк {} не ответил за {} мс", bankType, deadline.toMillis());
+                status = BankAggregationStatus.builder()
+                        .status(BankFetchStatus.TIMED_OUT)
+                        .latencyMs(deadlineLatency)
+                        .build();
+            } else if (future.isCompletedExceptionally()) {
+                Throwable error = unwrap(future.handle((result, e) -> e).join());
+                log.warn("Не удалось получить данные банка {}: {}", bankType, error.getMessage());
+                status = BankAggregationStatus.builder()
+                        .status(error instanceof BankUnavailableException ? BankFetchStatus.UNAVAILABLE : BankFetchStatus.FAILED)
+                        .latencyMs(latencies.getOrDefault(bankType, deadlineLatency))
+                        .error(error.getMessage())
+                        .build();
+            } else {
+                results.put(bankType, future.join());
+                status = BankAggregationStatus.builder()
+                        .status(BankFetchStatus.COMPLETE)
+                        .latencyMs(latencies.getOrDefault(bankType, deadlineLatency))
+                        .build();
+            }
+            status.setCircuitState(resilienceRegistry.getState(bankType));
+            bankStatuses.put(bankType, status);
+        });
+        return new BankFanOutResult<>(results, bankStatuses);
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        Throwable cause = e;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    @FunctionalInterface
+    public interface BankCall<R> {
+        R call(BankClient client) throws Exception;
+    }
+}
@@ -0,0 +1,297 @@
+package org.vtb.multibanking.service.bank;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.client.RestTemplate;
+import org.vtb.multibanking.config.BankConfig;
+import org.vtb.multibanking.service.bank.resilience.BankCallPolicy;
+import org.vtb.multibanking.service.bank.resilience.BankRequestHedger;
+import org.vtb.multibanking.service.bank.resilience.BankResilience;
+import org.vtb.multibanking.service.bank.resilience.BankResilienceRegistry;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+@Slf4j
+@Component
+public class BankHttpTransport {
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+
+    private final HttpClient asyncHttpClient;
+    private final Duration defaultReadTimeout;
+    private final Map<String, Duration> readTimeoutByHost = new HashMap<>();
+    private final Map<String, String> bankByHost = new HashMap<>();
+    private final BankRequestHedger requestHedger;
+    private final BankCallPolicy callPolicy;
+    private final BankResilienceRegistry resilienceRegistry;
+
+    @Getter
+    private final RestTemplate restTemplate;
+
+    @Getter
+    private final BankJsonReader jsonReader;
+
+    public BankHttpTransport(BankConfig bankConfig, MeterRegistry meterRegistry, BankJsonReader jsonReader,
+                             BankRequestHedger requestHedger, BankCallPolicy callPolicy,
+                             BankResilienceRegistry resilienceRegistry) {
+        BankConfig.HttpConfig http = bankConfig.getHttp();
+        ConnectionConfig defaultConnectionConfig = connectionConfig(http.getConnectTimeout(), http.getReadTimeout(), http.getConnectionTtl());
+
+        Map<String, ConnectionConfig> connectionConfigByHost = new HashMap<>();
+        Map<String, HttpRoute> routeByBank = new HashMap<>();
+        if (bankConfig.getApis() != null) {
+            bankConfig.getApis().forEach((bank, api) -> {
+                HttpRoute route = routeOf(api.getBaseUrl());
+                routeByBank.put(bank, route);
+                connectionConfigByHost.put(route.getTargetHost().getHostName(),
+                        connectionConfig(api.getConnectTimeout(), api.getReadTimeout(), http.getConnectionTtl()));
+                readTimeoutByHost.put(route.getTargetHost().getHostName(), api.getReadTimeout());
+                bankByHost.put(route.getTargetHost().getHostName(), bank);
+            });
+        }
+
+        this.connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(http.getMaxTotalConnections())
+                .setMaxConnPerRoute(http.getMaxConnectionsPerHost())
+                .setDefaultConnectionConfig(defaultConnectionConfig)
+                .build();
+        this.connectionManager.setConnectionConfigResolver(route ->
+                connectionConfigByHost.getOrDefault(route.getTargetHost().getHostName(), defaultConnectionConfig));
+
+        routeByBank.forEach((bank, route) -> {
+            connectionManager.setMaxPerRoute(route, bankConfig.getApis().get(bank).getMaxConnections());
+            registerPoolMetrics(meterRegistry, bank, route);
+        });
+        Gauge.builder("bank.http.pool.total.leased", connectionManager, cm -> cm.getTotalStats().getLeased())
+                .register(meterRegistry);
+        Gauge.builder("bank.http.pool.total.pending", connectionManager, cm -> cm.getTotalStats().getPending())
+                .register(meterRegistry);
+
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(http.getConnectionRequestTimeout()))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(http.getIdleTimeout()))
+                .build();
+
+        this.restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+        this.restTemplate.setErrorHandler(new DefaultResponseErrorHandler());
+
+        // Неблокирующий клиент для асинхронного API: HTTP/2, если сервер его поддерживает
+        this.asyncHttpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(http.getConnectTimeout())
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        this.jsonReader = jsonReader;
+        this.requestHedger = requestHedger;
+        this.callPolicy = callPolicy;
+        this.resilienceRegistry = resilienceRegistry;
+        this.defaultReadTimeout = http.getReadTimeout();
+
+        log.info("Пул HTTP-соединений к банкам создан: всего {}, маршрутов {}", http.getMaxTotalConnections(), routeByBank.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        httpClient.close(CloseMode.GRACEFUL);
+    }
+
+    /* Тело ответа читается из потока соединения, без копирования в промежуточный буфер */
+    public <T> T get(String url, HttpHeaders headers, BodyReader<T> bodyReader) {
+        return restTemplate.execute(url, HttpMethod.GET,
+                request -> request.getHeaders().addAll(headers),
+                response -> bodyReader.read(response.getBody()));
+    }
+
+    /*
+     Только для идемпотентных чтений: запрос может быть отправлен банку повторно или дважды.
+     Повторы оборачивают хеджирование, а лимит частоты и circuit breaker применяются к каждому фактическому запросу.
+     Пока хеджирование по эндпоинту активно, запросы идут через неблокирующий клиент, чтобы поток вызывающего
+     мог вернуть первый ответ, не дожидаясь второго.
+     */
+    public <T> T getHedged(String endpoint, String url, HttpHeaders headers, BodyReader<T> bodyReader) {
+        String bank = bankOf(url);
+        return callPolicy.withRetry(bank, endpoint, true, () -> requestHedger.execute(bank, endpoint,
+                () -> {
+                    callPolicy.acquirePermit(bank, endpoint);
+                    return withBreaker(bank, () -> {
+                        long startedAt = System.nanoTime();
+                        T result = get(url, headers, bodyReader);
+                        requestHedger.recordLatency(bank, endpoint, System.nanoTime() - startedAt);
+                        return result;
+                    });
+                },
+                () -> sendHedgeable(bank, endpoint, url, headers, bodyReader)));
+    }
+
+    public <T> CompletableFuture<T> getAsyncHedged(String endpoint, String url, HttpHeaders headers, BodyReader<T> bodyReader) {
+        String bank = bankOf(url);
+        return callPolicy.withRetryAsync(bank, endpoint, true, () -> requestHedger.executeAsync(bank, endpoint,
+                () -> sendHedgeable(bank, endpoint, url, headers, bodyReader)));
+    }
+
+    /* Запросы с побочными эффектами повторяются, только если метод идемпотентен или передан x-idempotency-key */
+    public <T> ResponseEntity<T> exchange(String endpoint, String url, HttpMethod method, HttpEntity<?> entity,
+                                          Class<T> responseType) {
+        String bank = bankOf(url);
+        return callPolicy.withRetry(bank, endpoint, BankCallPolicy.isIdempotent(method, entity.getHeaders()), () -> {
+            callPolicy.acquirePermit(bank, endpoint);
+            return withBreaker(bank, () -> restTemplate.exchange(url, method, entity, responseType));
+        });
+    }
+
+    public CompletableFuture<Map<String, Object>> getAsync(String url, HttpHeaders headers) {
+        return getAsync(url, headers, jsonReader::readMap);
+    }
+
+    /*
+     Тело копится в буфер неблокирующим клиентом и разбирается, когда получено целиком: потоковое чтение
+     из InputStream в потоке HttpClient блокировало бы его на медленных ответах банка
+     */
+    public <T> CompletableFuture<T> getAsync(String url, HttpHeaders headers, BodyReader<T> bodyReader) {
+        URI uri = URI.create(url);
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder(uri)
+                .GET()
+                .timeout(readTimeoutByHost.getOrDefault(uri.getHost(), defaultReadTimeout));
+        headers.forEach((name, values) -> values.forEach(value -> requestBuilder.header(name, value)));
+
+        return asyncHttpClient.sendAsync(requestBuilder.build(), HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> readBody(response, bodyReader));
+    }
+
+    private <T> T readBody(HttpResponse<byte[]> response, BodyReader<T> bodyReader) {
+        int status = response.statusCode();
+        if (status < 200 || status >= 300) {
+            throw statusException(status, responseHeaders(response), response.body());
+        }
+        try (InputStream body = new ByteArrayInputStream(response.body())) {
+            return bodyReader.read(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось разобрать ответ банка " + response.uri(), e);
+        }
+    }
+
+    /* Одна попытка: токен лимита, затем отправка; задержка для хеджирования считается от отправки */
+    private <T> CompletableFuture<T> sendHedgeable(String bank, String endpoint, String url, HttpHeaders headers,
+                                                   BodyReader<T> bodyReader) {
+        return callPolicy.acquirePermitAsync(bank, endpoint).thenCompose(ignored -> withBreakerAsync(bank, () -> {
+            long startedAt = System.nanoTime();
+            return getAsync(url, headers, bodyReader).whenComplete((result, e) -> {
+                if (e == null) {
+                    requestHedger.recordLatency(bank, endpoint, System.nanoTime() - startedAt);
+                }
+            });
+        }));
+    }
+
+    private <T> T withBreaker(String bank, Supplier<T> call) {
+        BankResilience resilience = resilienceRegistry.forBank(bank);
+        return resilience != null ? resilience.exchange(call) : call.get();
+    }
+
+    private <T> CompletableFuture<T> withBreakerAsync(String bank, Supplier<CompletableFuture<T>> call) {
+        BankResilience resilience = resilienceRegistry.forBank(bank);
+        return resilience != null ? resilience.exchangeAsync(call) : call.get();
+    }
+
+    private String bankOf(String url) {
+        String host = URI.create(url).getHost();
+        return bankByHost.getOrDefault(host, host);
+    }
+
+    @FunctionalInterface
+    public interface BodyReader<T> {
+        T read(InputStream body) throws IOException;
+    }
+
+    /* Заголовки ответа нужны в исключении так же, как у RestTemplate: по Retry-After планируется повтор */
+    private static RestClientResponseException statusException(int status, HttpHeaders headers, byte[] body) {
+        HttpStatusCode statusCode = HttpStatusCode.valueOf(status);
+        if (statusCode.is4xxClientError()) {
+            return HttpClientErrorException.create(statusCode, "", headers, body, StandardCharsets.UTF_8);
+        }
+        if (statusCode.is5xxServerError()) {
+            return HttpServerErrorException.create(statusCode, "", headers, body, StandardCharsets.UTF_8);
+        }
+        return new RestClientResponseException("Неожиданный статус ответа банка: " + status, statusCode, "", headers, body, StandardCharsets.UTF_8);
+    }
+
+    private static HttpHeaders responseHeaders(HttpResponse<?> response) {
+        HttpHeaders headers = new HttpHeaders();
+        response.headers().map().forEach(headers::addAll);
+        return headers;
+    }
+
+    private void registerPoolMetrics(MeterRegistry meterRegistry, String bank, HttpRoute route) {
+        registerPoolGauge(meterRegistry, "bank.http.pool.leased", bank, route, PoolStats::getLeased);
+        registerPoolGauge(meterRegistry, "bank.http.pool.pending", bank, route, PoolStats::getPending);
+        registerPoolGauge(meterRegistry, "bank.http.pool.available", bank, route, PoolStats::getAvailable);
+        registerPoolGauge(meterRegistry, "bank.http.pool.max", bank, route, PoolStats::getMax);
+    }
+
+    private void registerPoolGauge(MeterRegistry meterRegistry, String name, String bank, HttpRoute route,
+                                   ToDoubleFunction<PoolStats> value) {
+        Gauge.builder(name, connectionManager, cm -> value.applyAsDouble(cm.getStats(route)))
+                .tag("bank", bank)
+                .register(meterRegistry);
+    }
+
+    private static ConnectionConfig connectionConfig(Duration connectTimeout, Duration readTimeout, Duration ttl) {
+        return ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.of(connectTimeout))
+                .setSocketTimeout(Timeout.of(readTimeout))
+                .setTimeToLive(TimeValue.of(ttl))
+                .build();
+    }
+
+    private static HttpRoute routeOf(String baseUrl) {
+        URI uri = URI.create(baseUrl);
+        boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+        int port = uri.getPort() != -1 ? uri.getPort() : (secure ? 443 : 80);
+        return new HttpRoute(new HttpHost(uri.getScheme(), uri.getHost(), port), null, secure);
+    }
+}
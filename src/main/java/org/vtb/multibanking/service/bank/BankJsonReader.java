@@ -0,0 +1,77 @@
+package org.vtb.multibanking.service.bank;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/*
+ Потоковый разбор ответов банков вида {"data": {"<key>": [ ... ]}}: парсер идёт по токенам,
+ каждый элемент массива читается сразу в типизированный DTO и преобразуется в модель,
+ поэтому промежуточное дерево Map/List для всего ответа не строится.
+ */
+@Component
+@RequiredArgsConstructor
+public class BankJsonReader {
+
+    private final ObjectMapper objectMapper;
+
+    public <D, R> List<R> readDataList(InputStream body, String key, Class<D> type, Function<D, R> mapper) throws IOException {
+        List<R> result = new ArrayList<>();
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return result;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("data".equals(field) && value == JsonToken.START_OBJECT) {
+                    readDataObject(parser, key, type, mapper, result);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return result;
+    }
+
+    public Map<String, Object> readMap(InputStream body) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            if (parser.nextToken() == null) {
+                return Map.of();
+            }
+            return parser.readValueAs(new TypeReference<Map<String, Object>>() {});
+        }
+    }
+
+    public <D> D convert(Map<String, Object> data, Class<D> type) {
+        return data == null ? null : objectMapper.convertValue(data, type);
+    }
+
+    private <D, R> void readDataObject(JsonParser parser, String key, Class<D> type, Function<D, R> mapper,
+                                       List<R> result) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (key.equals(field) && value == JsonToken.START_ARRAY) {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    D item = parser.readValueAs(type);
+                    if (item != null) {
+                        result.add(mapper.apply(item));
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+}
@@ -1,31 +1,25 @@
 package org.vtb.multibanking.service.bank;
 
-import org.springframework.beans.factory.annotation.Autowired;
+import lombok.RequiredArgsConstructor;
 import org.vtb.multibanking.model.BankType;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 @Service
+@RequiredArgsConstructor
 public class BankService {
-    private final Map<BankType, BankClient> bankClients;
+    private final BankClientRegistry bankClientRegistry;
 
-    @Autowired
-    public BankService(List<BankClient> clients) {
-        this.bankClients = clients.stream()
-                .collect(Collectors.toMap(
-                        BankClient::getBankType,
-                        client -> client
-                ));
+    public BankClient getBankClient(BankType bankType) {
+        return bankClientRegistry.getBankClient(bankType);
     }
 
-    public BankClient getBankClient(BankType bankType) {
-        BankClient client = bankClients.get(bankType);
-        if (client == null) {
-            throw new IllegalArgumentException("Банк " + bankType + " не поддерживается");
-        }
-        return client;
+    public BankClient getBankClient(BankType bankType, String userId) {
+        return bankClientRegistry.getBankClient(bankType, userId);
+    }
+
+    public List<BankClient> getBankClients(String userId) {
+        return bankClientRegistry.getBankClients(userId);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,167 @@
+package org.vtb.multibanking.service.bank;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/*
+ Токен доступа к API банка. Одновременно выполняется не больше одного запроса за токеном:
+ остальные потоки ждут его результата. Незадолго до истечения токен обновляется в фоне,
+ поэтому запросы к банку не ждут получения нового токена.
+ */
+@Slf4j
+public class BankTokenManager {
+
+    private static final Duration EXPIRY_MARGIN = Duration.ofSeconds(30);
+    // Для коротких токенов запас не больше этой доли срока жизни, иначе токен непригоден сразу после выдачи
+    private static final int MAX_MARGIN_FRACTION = 10;
+    // Не чаще одного фонового обновления в секунду, даже если банк выдаёт токены на секунды
+    private static final Duration MIN_REFRESH_DELAY = Duration.ofSeconds(1);
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(30);
+
+    private final String name;
+    private final Supplier<Token> tokenLoader;
+    private final ScheduledExecutorService scheduler;
+    private final Duration refreshAhead;
+    private final Timer refreshTimer;
+    private final Counter refreshFailures;
+
+    private volatile Token token;
+    private CompletableFuture<Token> refreshInFlight;
+
+    public BankTokenManager(String name, Supplier<Token> tokenLoader, ScheduledExecutorService scheduler,
+                            Duration refreshAhead, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.tokenLoader = tokenLoader;
+        this.scheduler = scheduler;
+        this.refreshAhead = refreshAhead;
+        this.refreshTimer = Timer.builder("bank.token.refresh")
+                .tag("bank", name)
+                .register(meterRegistry);
+        this.refreshFailures = Counter.builder("bank.token.refresh.failures")
+                .tag("bank", name)
+                .register(meterRegistry);
+    }
+
+    public String getToken() {
+        Token current = token;
+        if (isUsable(current)) {
+            return current.value();
+        }
+
+        try {
+            return refresh().join().value();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /* Банк отклонил токен раньше срока (401). Сбрасывается только он - токен, уже обновлённый другим потоком, остаётся */
+    public void invalidate(String rejectedToken) {
+        synchronized (this) {
+            Token current = token;
+            if (current != null && current.value().equals(rejectedToken)) {
+                token = null;
+                log.warn("Банк {} отклонил токен до истечения срока, токен будет получен заново", name);
+            }
+        }
+    }
+
+    private CompletableFuture<Token> refresh() {
+        CompletableFuture<Token> future;
+        synchronized (this) {
+            if (refreshInFlight != null) {
+                return refreshInFlight;
+            }
+            Token current = token;
+            if (isUsable(current) && Instant.now().isBefore(refreshAt(current))) {
+                return CompletableFuture.completedFuture(current);
+            }
+            future = new CompletableFuture<>();
+            refreshInFlight = future;
+        }
+
+        try {
+            Token loaded = refreshTimer.record(tokenLoader::get);
+            token = loaded;
+            scheduleRefresh(loaded);
+            future.complete(loaded);
+            log.debug("Получен токен банка {}, действует до {}", name, loaded.expiresAt());
+        } catch (RuntimeException e) {
+            refreshFailures.increment();
+            log.error("Не удалось обновить токен банка {}: {}", name, e.getMessage());
+            future.completeExceptionally(e);
+        } finally {
+            synchronized (this) {
+                refreshInFlight = null;
+            }
+        }
+        return future;
+    }
+
+    private void scheduleRefresh(Token loaded) {
+        long delay = Duration.between(Instant.now(), refreshAt(loaded)).toMillis();
+        scheduler.schedule(this::refreshInBackground, Math.max(delay, MIN_REFRESH_DELAY.toMillis()), TimeUnit.MILLISECONDS);
+    }
+
+    private void refreshInBackground() {
+        refresh().whenComplete((loaded, e) -> {
+            if (e != null && isUsable(token)) {
+                scheduler.schedule(this::refreshInBackground, RETRY_DELAY.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    private Instant refreshAt(Token token) {
+        Instant usableUntil = usableUntil(token);
+        Instant refreshAt = usableUntil.minus(refreshAhead);
+        if (refreshAt.isBefore(token.issuedAt())) {
+            return token.issuedAt().plus(Duration.between(token.issuedAt(), usableUntil).dividedBy(2));
+        }
+        return refreshAt;
+    }
+
+    private static Instant usableUntil(Token token) {
+        Duration lifetime = Duration.between(token.issuedAt(), token.expiresAt());
+        Duration margin = lifetime.isNegative() ? Duration.ZERO : lifetime.dividedBy(MAX_MARGIN_FRACTION);
+        return token.expiresAt().minus(margin.compareTo(EXPIRY_MARGIN) < 0 ? margin : EXPIRY_MARGIN);
+    }
+
+    private static boolean isUsable(Token token) {
+        return token != null && Instant.now().isBefore(usableUntil(token));
+    }
+
+    public record Token(String value, Instant issuedAt, Instant expiresAt) {
+        public static Token of(String value, long expiresInSeconds) {
+            Instant now = Instant.now();
+            return new Token(value, now, now.plusSeconds(expiresInSeconds));
+        }
+
+        /* expires_in банки присылают числом или строкой; без него или с мусором - срок по умолчанию */
+        public static Token of(String value, Object expiresIn, long defaultTtlSeconds) {
+            long seconds = defaultTtlSeconds;
+            if (expiresIn instanceof Number number) {
+                seconds = number.longValue();
+            } else if (expiresIn instanceof String text) {
+                try {
+                    seconds = Long.parseLong(text.trim());
+                } catch (NumberFormatException e) {
+                    log.warn("Некорректный expires_in токена: {}", text);
+                }
+            }
+            return of(value, seconds > 0 ? seconds : defaultTtlSeconds);
+        }
+    }
+}
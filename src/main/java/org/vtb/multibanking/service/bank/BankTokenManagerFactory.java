@@ -0,0 +1,38 @@
+package org.vtb.multibanking.service.bank;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.vtb.multibanking.config.BankConfig;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Supplier;
+
+@Component
+public class BankTokenManagerFactory {
+
+    private final BankConfig bankConfig;
+    private final MeterRegistry meterRegistry;
+    private final ScheduledExecutorService scheduler;
+
+    public BankTokenManagerFactory(BankConfig bankConfig, MeterRegistry meterRegistry) {
+        this.bankConfig = bankConfig;
+        this.meterRegistry = meterRegistry;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("bank-token-"));
+    }
+
+    public BankTokenManager create(String name, Supplier<BankTokenManager.Token> tokenLoader) {
+        return new BankTokenManager(name, tokenLoader, scheduler, bankConfig.getToken().getRefreshAhead(), meterRegistry);
+    }
+
+    public long getDefaultTtlSeconds() {
+        return bankConfig.getToken().getDefaultTtl().toSeconds();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,140 @@
+package org.vtb.multibanking.service.bank;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.vtb.multibanking.entity.ConsentEntity;
+import org.vtb.multibanking.model.BankType;
+import org.vtb.multibanking.service.ConsentService;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/*
+ Фоновая проверка согласий в статусе pending. Статус запрашивается у банка с растущей паузой
+ (initial-delay, затем x2 до max-delay), пока согласие не одобрят или не истечёт timeout.
+ Вызывающий код не ждёт одобрения: он получает pending сразу и может подписаться на CompletableFuture.
+ */
+@Slf4j
+@Component
+public class ConsentApprovalPoller {
+
+    private final ConsentService consentService;
+    private final ObjectProvider<BankClientRegistry> bankClientRegistry;
+    private final Duration initialDelay;
+    private final Duration maxDelay;
+    private final Duration timeout;
+    private final ScheduledExecutorService scheduler;
+    private final Map<PendingKey, PendingApproval> pendingApprovals = new ConcurrentHashMap<>();
+
+    public ConsentApprovalPoller(ConsentService consentService,
+                                 ObjectProvider<BankClientRegistry> bankClientRegistry,
+                                 @Value("${app.consent.approval.initial-delay:2s}") Duration initialDelay,
+                                 @Value("${app.consent.approval.max-delay:1m}") Duration maxDelay,
+                                 @Value("${app.consent.approval.timeout:30m}") Duration timeout) {
+        this.consentService = consentService;
+        this.bankClientRegistry = bankClientRegistry;
+        this.initialDelay = initialDelay;
+        this.maxDelay = maxDelay;
+        this.timeout = timeout;
+        this.scheduler = Executors.newScheduledThreadPool(2, new CustomizableThreadFactory("consent-approval-"));
+    }
+
+    /* Согласия, оставшиеся в pending после перезапуска, продолжаем отслеживать */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePendingConsents() {
+        for (ConsentEntity consent : consentService.getPendingConsents()) {
+            try {
+                bankClientRegistry.getObject()
+                        .getBankClient(consent.getBankType(), consent.getClientId())
+                        .awaitConsentApproval();
+            } catch (Exception e) {
+                log.warn("Не удалось возобновить проверку согласия {} для банка {}: {}",
+                        consent.getRequestId(), consent.getBankType(), e.getMessage());
+            }
+        }
+    }
+
+    public CompletableFuture<String> track(BankType bankType, String clientId, String requestId,
+                                           Function<String, Optional<String>> statusCheck) {
+        PendingKey key = new PendingKey(bankType, clientId);
+        PendingApproval approval = pendingApprovals.compute(key, (k, existing) -> {
+            if (existing != null && existing.requestId().equals(requestId) && !existing.future().isDone()) {
+                return existing;
+            }
+            if (existing != null) {
+                existing.future().cancel(false);
+            }
+            PendingApproval created = new PendingApproval(requestId, new CompletableFuture<>(), Instant.now());
+            log.info("Отслеживаем одобрение согласия {} в банке {}", requestId, bankType);
+            schedule(key, created, statusCheck, Duration.ZERO, initialDelay);
+            return created;
+        });
+        return approval.future();
+    }
+
+    public Optional<CompletableFuture<String>> getApproval(BankType bankType, String clientId) {
+        return Optional.ofNullable(pendingApprovals.get(new PendingKey(bankType, clientId)))
+                .map(PendingApproval::future);
+    }
+
+    private void schedule(PendingKey key, PendingApproval approval, Function<String, Optional<String>> statusCheck,
+                          Duration delay, Duration nextDelay) {
+        scheduler.schedule(() -> poll(key, approval, statusCheck, nextDelay), delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void poll(PendingKey key, PendingApproval approval, Function<String, Optional<String>> statusCheck,
+                      Duration delay) {
+        if (approval.future().isDone()) {
+            pendingApprovals.remove(key, approval);
+            return;
+        }
+
+        Optional<String> consentId = Optional.empty();
+        try {
+            consentId = statusCheck.apply(approval.requestId());
+        } catch (Exception e) {
+            log.warn("Ошибка проверки согласия {} в банке {}: {}", approval.requestId(), key.bankType(), e.getMessage());
+        }
+
+        if (consentId.isPresent()) {
+            pendingApprovals.remove(key, approval);
+            approval.future().complete(consentId.get());
+            return;
+        }
+
+        if (Instant.now().isAfter(approval.startedAt().plus(timeout))) {
+            pendingApprovals.remove(key, approval);
+            approval.future().completeExceptionally(new RuntimeException(
+                    "Согласие " + approval.requestId() + " для банка " + key.bankType() + " не одобрено за " + timeout));
+            return;
+        }
+
+        Duration doubled = delay.multipliedBy(2);
+        schedule(key, approval, statusCheck, delay, doubled.compareTo(maxDelay) < 0 ? doubled : maxDelay);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private record PendingKey(BankType bankType, String clientId) {
+    }
+
+    private record PendingApproval(String requestId, CompletableFuture<String> future, Instant startedAt) {
+    }
+}
@@ -0,0 +1,17 @@
+package org.vtb.multibanking.service.bank;
+
+import lombok.Getter;
+import org.vtb.multibanking.model.BankType;
+
+@Getter
+public class ConsentPendingException extends RuntimeException {
+
+    private final BankType bankType;
+    private final String requestId;
+
+    public ConsentPendingException(BankType bankType, String requestId) {
+        super("Согласие для банка " + bankType + " ожидает одобрения: " + requestId);
+        this.bankType = bankType;
+        this.requestId = requestId;
+    }
+}
@@ -0,0 +1,118 @@
+package org.vtb.multibanking.service.bank;
+
+import org.vtb.multibanking.model.*;
+import org.vtb.multibanking.service.bank.resilience.BankResilience;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/*
+ Все операции с банком проходят через его bulkhead и быстро отклоняются при разомкнутой цепи.
+ Исходы для circuit breaker записывает BankHttpTransport по каждому HTTP-запросу.
+ */
+class ResilientBankClient implements BankClient {
+
+    private final BankClient delegate;
+    private final BankResilience resilience;
+
+    ResilientBankClient(BankClient delegate, BankResilience resilience) {
+        this.delegate = delegate;
+        this.resilience = resilience;
+    }
+
+    @Override
+    public BankType getBankType() {
+        return delegate.getBankType();
+    }
+
+    @Override
+    public String getUserId() {
+        return delegate.getUserId();
+    }
+
+    @Override
+    public BankClient forUser(String userId) {
+        return new ResilientBankClient(delegate.forUser(userId), resilience);
+    }
+
+    @Override
+    public CompletableFuture<String> awaitConsentApproval() {
+        return delegate.awaitConsentApproval();
+    }
+
+    @Override
+    public List<Account> fetchAccounts() throws Exception {
+        return resilience.execute(delegate::fetchAccounts);
+    }
+
+    @Override
+    public CompletableFuture<List<Account>> fetchAccountsAsync() {
+        return resilience.executeAsync(delegate::fetchAccountsAsync);
+    }
+
+    @Override
+    public Account createAccount(String accountType, BigDecimal initialBalance) throws Exception {
+        return resilience.execute(() -> delegate.createAccount(accountType, initialBalance));
+    }
+
+    @Override
+    public String createPayment(String debtorAccount, String creditorAccount, Amount amount, BankType bankType) throws Exception {
+        return resilience.execute(() -> delegate.createPayment(debtorAccount, creditorAccount, amount, bankType));
+    }
+
+    @Override
+    public List<Product> getProductsCatalog() {
+        return resilience.execute(delegate::getProductsCatalog);
+    }
+
+    @Override
+    public CompletableFuture<List<Product>> getProductsCatalogAsync() {
+        return resilience.executeAsync(delegate::getProductsCatalogAsync);
+    }
+
+    @Override
+    public boolean getProduct(String productId, BigDecimal amount, String sourceAccountId) throws Exception {
+        return resilience.execute(() -> delegate.getProduct(productId, amount, sourceAccountId));
+    }
+
+    @Override
+    public List<Product> getUserProductList() throws Exception {
+        return resilience.execute(delegate::getUserProductList);
+    }
+
+    @Override
+    public CompletableFuture<List<Product>> getUserProductListAsync() {
+        return resilience.executeAsync(delegate::getUserProductListAsync);
+    }
+
+    @Override
+    public boolean deleteProduct(String agreementId, String repaymentAccountId, BigDecimal repaymentAmount) throws Exception {
+        return resilience.execute(() -> delegate.deleteProduct(agreementId, repaymentAccountId, repaymentAmount));
+    }
+
+    @Override
+    public boolean closeAccount(String accountId, String action, String destinationAccountId) throws Exception {
+        return resilience.execute(() -> delegate.closeAccount(accountId, action, destinationAccountId));
+    }
+
+    @Override
+    public List<Card> getCards() throws Exception {
+        return resilience.execute(delegate::getCards);
+    }
+
+    @Override
+    public CompletableFuture<List<Card>> getCardsAsync() {
+        return resilience.executeAsync(delegate::getCardsAsync);
+    }
+
+    @Override
+    public Card createCard(String accountNumber, String cardType, String cardName) throws Exception {
+        return resilience.execute(() -> delegate.createCard(accountNumber, cardType, cardName));
+    }
+
+    @Override
+    public boolean deleteCard(String cardId) throws Exception {
+        return resilience.execute(() -> delegate.deleteCard(cardId));
+    }
+}
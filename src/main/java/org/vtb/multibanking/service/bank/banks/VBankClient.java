@@ -1,24 +1,43 @@
 package org.vtb.multibanking.service.bank.banks;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.vtb.multibanking.config.BankConfig;
+import org.vtb.multibanking.config.ExecutorFactory;
 import org.vtb.multibanking.model.BankType;
 import org.vtb.multibanking.service.integration.BankEventPublisher;
 import org.vtb.multibanking.service.ConsentService;
+import org.vtb.multibanking.service.TransactionSyncService;
 import org.vtb.multibanking.service.bank.AbstractBankClient;
+import org.vtb.multibanking.service.bank.BankClient;
+import org.vtb.multibanking.service.bank.BankHttpTransport;
+import org.vtb.multibanking.service.bank.BankTokenManagerFactory;
+import org.vtb.multibanking.service.bank.ConsentApprovalPoller;
 
 @Service
 public class VBankClient extends AbstractBankClient {
-    public VBankClient(BankConfig bankConfig, ConsentService consentService, BankEventPublisher bankEventPublisher) {
+    @Autowired
+    public VBankClient(BankConfig bankConfig, BankHttpTransport bankHttpTransport, ExecutorFactory executorFactory, BankTokenManagerFactory tokenManagerFactory, ConsentService consentService, ConsentApprovalPoller consentApprovalPoller, TransactionSyncService transactionSyncService, BankEventPublisher bankEventPublisher) {
         super(
                 bankConfig.getApis().get("vbank").getBaseUrl(),
                 bankConfig.getApis().get("vbank").getClientId(),
                 bankConfig.getApis().get("vbank").getClientSecret(),
                 bankConfig.getApis().get("abank").getClientId() + "-1",
-                consentService, bankEventPublisher
+                bankConfig.getApis().get("vbank").getAccountFetchConcurrency(),
+                bankHttpTransport, executorFactory, tokenManagerFactory,
+                consentService, consentApprovalPoller, transactionSyncService, bankEventPublisher
         );
     }
 
+    private VBankClient(VBankClient bankClient, String userId) {
+        super(bankClient, userId);
+    }
+
+    @Override
+    public BankClient forUser(String userId) {
+        return new VBankClient(this, userId);
+    }
+
     @Override
     public BankType getBankType() {
         return BankType.VBANK;
@@ -0,0 +1,25 @@
+package org.vtb.multibanking.service.bank.dto;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record BankAccountDto(
+        String accountId,
+        @JsonProperty("account_number") String accountNumber,
+        String status,
+        String currency,
+        @JsonAlias("account_type") String accountType,
+        String accountSubType,
+        String nickname,
+        String openingDate,
+        @JsonProperty("account") List<Identification> identifications
+) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Identification(String schemeName, String identification, String name) {
+    }
+}
@@ -0,0 +1,7 @@
+package org.vtb.multibanking.service.bank.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record BankAmountDto(String amount, String currency) {
+}
@@ -0,0 +1,13 @@
+package org.vtb.multibanking.service.bank.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record BankBalanceDto(
+        String accountId,
+        String type,
+        String creditDebitIndicator,
+        String dateTime,
+        BankAmountDto amount
+) {
+}
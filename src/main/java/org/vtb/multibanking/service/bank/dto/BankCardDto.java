@@ -0,0 +1,31 @@
+package org.vtb.multibanking.service.bank.dto;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.math.BigDecimal;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record BankCardDto(
+        @JsonProperty("card_id") @JsonAlias("cardId") String cardId,
+        @JsonProperty("card_number") @JsonAlias("cardNumber") String cardNumber,
+        @JsonProperty("card_name") @JsonAlias("cardName") String cardName,
+        @JsonProperty("card_type") @JsonAlias("cardType") String cardType,
+        String status,
+        @JsonProperty("account_number") @JsonAlias("accountNumber") String accountNumber,
+        BigDecimal accountBalance,
+        @JsonProperty("issue_date") String issueDate,
+        @JsonProperty("expiry_date") String expiryDate,
+        Limits limits
+) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Limits(
+            @JsonProperty("daily_limit") BigDecimal dailyLimit,
+            @JsonProperty("monthly_limit") BigDecimal monthlyLimit,
+            @JsonProperty("single_transaction_limit") BigDecimal singleTransactionLimit,
+            String currency
+    ) {
+    }
+}
@@ -0,0 +1,21 @@
+package org.vtb.multibanking.service.bank.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record BankTransactionDto(
+        String accountId,
+        String transactionId,
+        String creditDebitIndicator,
+        String status,
+        String transactionInformation,
+        String bookingDateTime,
+        String valueDateTime,
+        BankAmountDto amount,
+        TransactionCode bankTransactionCode
+) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record TransactionCode(String code) {
+    }
+}
@@ -0,0 +1,241 @@
+package org.vtb.multibanking.service.bank.resilience;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+import org.vtb.multibanking.config.BankConfig;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/*
+ Ограничение частоты запросов по паре (банк, эндпоинт) и повторы при 429/5xx/сетевых ошибках.
+ Повторы: экспоненциальная задержка с полным jitter, но не раньше Retry-After банка; если банк просит
+ подождать дольше max-backoff, запрос не повторяется, а ошибка отдаётся вызывающему. Каждый повтор
+ тратит токен из бюджета банка, который пополняется на budgetPercent% от успешных вызовов, поэтому
+ во время сбоя повторы быстро заканчиваются и не умножают нагрузку.
+ Неидемпотентные запросы (POST, PATCH) повторяются только с заголовком x-idempotency-key.
+ */
+@Slf4j
+@Component
+public class BankCallPolicy {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "x-idempotency-key";
+
+    private static final Set<HttpMethod> IDEMPOTENT_METHODS =
+            Set.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS, HttpMethod.PUT, HttpMethod.DELETE);
+
+    private final BankConfig.RateLimitConfig rateLimitConfig;
+    private final BankConfig.RetryConfig retryConfig;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, TokenBucket> rateLimits = new ConcurrentHashMap<>();
+    private final Map<String, LoadBudget> retryBudgets = new ConcurrentHashMap<>();
+
+    public BankCallPolicy(BankConfig bankConfig, MeterRegistry meterRegistry) {
+        this.rateLimitConfig = bankConfig.getRateLimit();
+        this.retryConfig = bankConfig.getRetry();
+        this.meterRegistry = meterRegistry;
+    }
+
+    public static boolean isIdempotent(HttpMethod method, HttpHeaders headers) {
+        return IDEMPOTENT_METHODS.contains(method) || headers.containsKey(IDEMPOTENCY_KEY_HEADER);
+    }
+
+    /* Лимит запросов в секунду для эндпоинта - по нему же планировщик обновления рассчитывает свою долю */
+    public double requestsPerSecond(String endpoint) {
+        Double endpointRate = rateLimitConfig.getEndpoints().get(endpoint);
+        return endpointRate != null ? endpointRate : rateLimitConfig.getRequestsPerSecond();
+    }
+
+    /* Ждёт токен лимита не дольше maxWait, иначе RateLimitExceededException */
+    public void acquirePermit(String bank, String endpoint) {
+        long waitNanos = reserve(bank, endpoint);
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RateLimitExceededException(bank, endpoint);
+            }
+        }
+    }
+
+    public CompletableFuture<Void> acquirePermitAsync(String bank, String endpoint) {
+        long waitNanos;
+        try {
+            waitNanos = reserve(bank, endpoint);
+        } catch (RateLimitExceededException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (waitNanos == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS));
+    }
+
+    public <T> T withRetry(String bank, String endpoint, boolean idempotent, Supplier<T> call) {
+        LoadBudget budget = retryBudget(bank);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                T result = call.get();
+                budget.onRequest();
+                return result;
+            } catch (RuntimeException e) {
+                long backoffNanos = retryDelayNanos(bank, endpoint, idempotent, attempt, e, budget);
+                if (backoffNanos < 0) {
+                    throw e;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.sleep(backoffNanos);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    public <T> CompletableFuture<T> withRetryAsync(String bank, String endpoint, boolean idempotent,
+                                                   Supplier<CompletableFuture<T>> call) {
+        return attemptAsync(bank, endpoint, idempotent, call, retryBudget(bank), 1);
+    }
+
+    private <T> CompletableFuture<T> attemptAsync(String bank, String endpoint, boolean idempotent,
+                                                  Supplier<CompletableFuture<T>> call, LoadBudget budget, int attempt) {
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.handle((result, e) -> {
+                    if (e == null) {
+                        budget.onRequest();
+                        return CompletableFuture.completedFuture(result);
+                    }
+                    Throwable error = unwrap(e);
+                    long backoffNanos = retryDelayNanos(bank, endpoint, idempotent, attempt, error, budget);
+                    if (backoffNanos < 0) {
+                        return CompletableFuture.<T>failedFuture(error);
+                    }
+                    return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(backoffNanos, TimeUnit.NANOSECONDS))
+                            .thenCompose(ignored -> attemptAsync(bank, endpoint, idempotent, call, budget, attempt + 1));
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /* Задержка перед следующей попыткой или -1, если повторять нельзя */
+    private long retryDelayNanos(String bank, String endpoint, boolean idempotent, int attempt,
+                                 Throwable error, LoadBudget budget) {
+        if (!idempotent || attempt >= retryConfig.getMaxAttempts() || !isRetryable(error)) {
+            return -1;
+        }
+        long maxBackoffNanos = retryConfig.getMaxBackoff().toNanos();
+        long retryAfter = retryAfterNanos(error);
+        if (retryAfter > maxBackoffNanos) {
+            meterRegistry.counter("bank.retry.skipped", "bank", bank, "endpoint", endpoint, "reason", "retry_after").increment();
+            log.warn("Банк {} ({}) просит повторить через {} с - дольше max-backoff, запрос не повторяется",
+                    bank, endpoint, TimeUnit.NANOSECONDS.toSeconds(retryAfter));
+            return -1;
+        }
+        if (!budget.tryAcquire()) {
+            meterRegistry.counter("bank.retry.exhausted", "bank", bank, "endpoint", endpoint).increment();
+            return -1;
+        }
+        meterRegistry.counter("bank.retry.attempts", "bank", bank, "endpoint", endpoint).increment();
+
+        long ceiling = Math.min(maxBackoffNanos, retryConfig.getInitialBackoff().toNanos() << Math.min(attempt - 1, 20));
+        long delay = Math.max(ThreadLocalRandom.current().nextLong(ceiling + 1), retryAfter);
+        log.warn("Повтор запроса к банку {} ({}) через {} мс, попытка {}: {}",
+                bank, endpoint, TimeUnit.NANOSECONDS.toMillis(delay), attempt + 1, error.getMessage());
+        return delay;
+    }
+
+    static boolean isRetryable(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof HttpServerErrorException serverError) {
+            return serverError.getStatusCode().value() != HttpStatus.NOT_IMPLEMENTED.value();
+        }
+        return cause instanceof HttpClientErrorException.TooManyRequests
+                || cause instanceof ResourceAccessException
+                || cause instanceof IOException
+                || cause instanceof UncheckedIOException;
+    }
+
+    /* Retry-After в секундах или HTTP-датой; -1, если заголовка нет или он не разбирается */
+    static long retryAfterNanos(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (!(cause instanceof RestClientResponseException responseError) || responseError.getResponseHeaders() == null) {
+            return -1;
+        }
+        String retryAfter = responseError.getResponseHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+        if (retryAfter == null) {
+            return -1;
+        }
+        try {
+            return TimeUnit.SECONDS.toNanos(Math.max(0, Long.parseLong(retryAfter.trim())));
+        } catch (NumberFormatException e) {
+            // не число секунд - пробуем дату
+        }
+        try {
+            ZonedDateTime retryAt = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(Instant.now(), retryAt.toInstant()).toNanos());
+        } catch (DateTimeParseException | ArithmeticException e) {
+            return -1;
+        }
+    }
+
+    private long reserve(String bank, String endpoint) {
+        long waitNanos = rateLimit(bank, endpoint).reserve(rateLimitConfig.getMaxWait().toNanos());
+        if (waitNanos < 0) {
+            meterRegistry.counter("bank.ratelimit.rejected", "bank", bank, "endpoint", endpoint).increment();
+            throw new RateLimitExceededException(bank, endpoint);
+        }
+        if (waitNanos > 0) {
+            meterRegistry.counter("bank.ratelimit.delayed", "bank", bank, "endpoint", endpoint).increment();
+        }
+        return waitNanos;
+    }
+
+    private TokenBucket rateLimit(String bank, String endpoint) {
+        return rateLimits.computeIfAbsent(bank + ":" + endpoint, key -> {
+            double rate = requestsPerSecond(endpoint);
+            double burst = rateLimitConfig.getEndpoints().containsKey(endpoint) ? rate : rateLimitConfig.getBurst();
+            return new TokenBucket(rate, Math.max(1, burst));
+        });
+    }
+
+    private LoadBudget retryBudget(String bank) {
+        return retryBudgets.computeIfAbsent(bank, key -> new LoadBudget(retryConfig.getBudgetPercent() / 100,
+                retryConfig.getMinRetries(), Math.max(retryConfig.getMinRetries(), 100)));
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
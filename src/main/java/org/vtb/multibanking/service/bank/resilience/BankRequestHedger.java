@@ -0,0 +1,161 @@
+package org.vtb.multibanking.service.bank.resilience;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.vtb.multibanking.config.BankConfig;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/*
+ Хеджирование идемпотентных чтений: если ответ не пришёл за наблюдаемый p95 банка по этому эндпоинту,
+ отправляется второй такой же запрос и берётся первый успешный ответ. Пока замеров мало, запросы не дублируются.
+ Дополнительная нагрузка на банк ограничена LoadBudget (по умолчанию не более 10% от основных запросов).
+ Основной запрос отправляется из потока вызывающего. Пул bank-hedge только запускает дублирующие запросы
+ через неблокирующий клиент, а его очередь ограничена: при переполнении дубль не отправляется.
+ Задержки для p95 записывает транспорт с момента фактической отправки запроса (recordLatency),
+ без ожидания токена лимита и очереди.
+ */
+@Slf4j
+@Component
+public class BankRequestHedger {
+
+    private final BankConfig.HedgingConfig config;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, RollingLatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LoadBudget> budgets = new ConcurrentHashMap<>();
+
+    public BankRequestHedger(BankConfig bankConfig, MeterRegistry meterRegistry) {
+        this.config = bankConfig.getHedging();
+        this.meterRegistry = meterRegistry;
+        int workers = Math.max(1, config.getWorkers());
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workers * 4), new CustomizableThreadFactory("bank-hedge-"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /*
+     Блокирующий вариант. Без хеджирования call выполняется в потоке вызывающего. С хеджированием запросы
+     идут через asyncCall: основной отправляется из потока вызывающего, который ждёт первый успешный ответ
+     */
+    public <T> T execute(String bank, String endpoint, Supplier<T> call, Supplier<CompletableFuture<T>> asyncCall) {
+        if (hedgeDelayMillis(histogram(bank, endpoint)) < 0) {
+            budget(bank).onRequest();
+            return call.get();
+        }
+        try {
+            return executeAsync(bank, endpoint, asyncCall).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public <T> CompletableFuture<T> executeAsync(String bank, String endpoint, Supplier<CompletableFuture<T>> call) {
+        RollingLatencyHistogram histogram = histogram(bank, endpoint);
+        LoadBudget budget = budget(bank);
+        budget.onRequest();
+
+        long delayMillis = hedgeDelayMillis(histogram);
+        CompletableFuture<T> primary = start(call);
+        if (delayMillis < 0) {
+            return primary;
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        primary.whenComplete((value, e) -> complete(result, pending, value, e));
+
+        CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS).execute(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            if (!budget.tryAcquire()) {
+                meterRegistry.counter("bank.hedge.rejected", "bank", bank, "endpoint", endpoint, "reason", "budget").increment();
+                return;
+            }
+            pending.incrementAndGet();
+            try {
+                executor.execute(() -> {
+                    meterRegistry.counter("bank.hedge.requests", "bank", bank, "endpoint", endpoint).increment();
+                    start(call).whenComplete((value, e) -> {
+                        if (complete(result, pending, value, e) && e == null) {
+                            meterRegistry.counter("bank.hedge.wins", "bank", bank, "endpoint", endpoint).increment();
+                        }
+                    });
+                });
+            } catch (RejectedExecutionException e) {
+                meterRegistry.counter("bank.hedge.rejected", "bank", bank, "endpoint", endpoint, "reason", "queue_full").increment();
+                complete(result, pending, null, e);
+            }
+        });
+        return result;
+    }
+
+    /* Задержка успешного запроса от фактической отправки до ответа */
+    public void recordLatency(String bank, String endpoint, long durationNanos) {
+        histogram(bank, endpoint).record(durationNanos);
+    }
+
+    /* Ошибка одного из запросов не завершает результат, пока другой ещё может ответить */
+    private static <T> boolean complete(CompletableFuture<T> result, AtomicInteger pending, T value, Throwable error) {
+        if (error == null) {
+            return result.complete(value);
+        }
+        if (pending.decrementAndGet() == 0) {
+            return result.completeExceptionally(error);
+        }
+        return false;
+    }
+
+    private long hedgeDelayMillis(RollingLatencyHistogram histogram) {
+        if (!config.isEnabled()) {
+            return -1;
+        }
+        long percentile = histogram.percentileMillis(config.getPercentile(), config.getMinSamples());
+        return percentile < 0 ? -1 : Math.max(config.getMinDelay().toMillis(), percentile);
+    }
+
+    private static <T> CompletableFuture<T> start(Supplier<CompletableFuture<T>> call) {
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private RollingLatencyHistogram histogram(String bank, String endpoint) {
+        return histograms.computeIfAbsent(bank + ":" + endpoint, key -> {
+            RollingLatencyHistogram histogram = new RollingLatencyHistogram(config.getWindow(), config.getWindowSlices());
+            Gauge.builder("bank.latency.p95", histogram, h -> h.percentileMillis(0.95, 1))
+                    .tag("bank", bank)
+                    .tag("endpoint", endpoint)
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+            return histogram;
+        });
+    }
+
+    private LoadBudget budget(String bank) {
+        return budgets.computeIfAbsent(bank, key -> new LoadBudget(config.getMaxExtraLoad(), 0, 10));
+    }
+}
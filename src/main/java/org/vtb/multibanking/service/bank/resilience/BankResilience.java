@@ -0,0 +1,171 @@
+package org.vtb.multibanking.service.bank.resilience;
+
+import lombok.Getter;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.vtb.multibanking.model.BankHealth;
+import org.vtb.multibanking.model.BankType;
+import org.vtb.multibanking.model.CircuitState;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/*
+ Circuit breaker и bulkhead одного банка: общие для всех пользователей этого банка.
+ Bulkhead и быстрый отказ при разомкнутой цепи - на уровне операции клиента (execute),
+ а исход и длительность для цепи записываются по каждому HTTP-обмену (exchange), включая повторы
+ и хеджированные запросы: операция из многих запросов не выглядит одним медленным вызовом.
+ */
+public class BankResilience {
+
+    @Getter
+    private final BankType bankType;
+    private final CircuitBreaker circuitBreaker;
+    private final Semaphore bulkhead;
+    private final int maxConcurrentCalls;
+    private final Runnable onCircuitRejected;
+    private final Runnable onBulkheadRejected;
+
+    public BankResilience(BankType bankType, CircuitBreaker circuitBreaker, int maxConcurrentCalls,
+                          Runnable onCircuitRejected, Runnable onBulkheadRejected) {
+        this.bankType = bankType;
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = new Semaphore(maxConcurrentCalls);
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.onCircuitRejected = onCircuitRejected;
+        this.onBulkheadRejected = onBulkheadRejected;
+    }
+
+    public <T, E extends Exception> T execute(BankCall<T, E> call) throws E {
+        acquire();
+        try {
+            return call.call();
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    public <T> CompletableFuture<T> executeAsync(Supplier<CompletableFuture<T>> call) {
+        try {
+            acquire();
+        } catch (BankUnavailableException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            bulkhead.release();
+            return CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((result, e) -> bulkhead.release());
+    }
+
+    /* Один HTTP-обмен с банком; время ожидания токена лимита сюда не входит */
+    public <T> T exchange(Supplier<T> call) {
+        acquireExchangePermission();
+        long startedAt = System.nanoTime();
+        try {
+            T result = call.get();
+            circuitBreaker.onResult(false, System.nanoTime() - startedAt);
+            return result;
+        } catch (RuntimeException e) {
+            onError(e, System.nanoTime() - startedAt);
+            throw e;
+        }
+    }
+
+    public <T> CompletableFuture<T> exchangeAsync(Supplier<CompletableFuture<T>> call) {
+        try {
+            acquireExchangePermission();
+        } catch (BankUnavailableException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        long startedAt = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            onError(e, System.nanoTime() - startedAt);
+            return CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((result, e) -> {
+            if (e == null) {
+                circuitBreaker.onResult(false, System.nanoTime() - startedAt);
+            } else {
+                onError(e, System.nanoTime() - startedAt);
+            }
+        });
+    }
+
+    public BankHealth getHealth() {
+        return BankHealth.builder()
+                .state(circuitBreaker.getState())
+                .failureRate(circuitBreaker.failureRate())
+                .slowCallRate(circuitBreaker.slowCallRate())
+                .activeCalls(maxConcurrentCalls - bulkhead.availablePermits())
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .build();
+    }
+
+    int availableCalls() {
+        return bulkhead.availablePermits();
+    }
+
+    CircuitBreaker circuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /* Только проверка: пробные разрешения полуоткрытой цепи расходуются на отдельные HTTP-обмены */
+    private void acquire() {
+        if (circuitBreaker.getState() == CircuitState.OPEN) {
+            onCircuitRejected.run();
+            throw new BankUnavailableException(bankType, "цепь разомкнута после серии ошибок");
+        }
+        if (!bulkhead.tryAcquire()) {
+            onBulkheadRejected.run();
+            throw new BankUnavailableException(bankType, "превышено число одновременных запросов (" + maxConcurrentCalls + ")");
+        }
+    }
+
+    private void acquireExchangePermission() {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            onCircuitRejected.run();
+            throw new BankUnavailableException(bankType, "цепь разомкнута после серии ошибок");
+        }
+    }
+
+    private void onError(Throwable error, long durationNanos) {
+        if (isBankFailure(error)) {
+            circuitBreaker.onResult(true, durationNanos);
+        } else {
+            circuitBreaker.releasePermission();
+        }
+    }
+
+    /* Ошибки, говорящие о проблемах банка; 4xx и ошибки согласий состояние цепи не меняют */
+    static boolean isBankFailure(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof HttpServerErrorException
+                || cause instanceof HttpClientErrorException.TooManyRequests
+                || cause instanceof ResourceAccessException
+                || cause instanceof IOException
+                || cause instanceof UncheckedIOException
+                || cause instanceof TimeoutException;
+    }
+
+    @FunctionalInterface
+    public interface BankCall<T, E extends Exception> {
+        T call() throws E;
+    }
+}
@@ -0,0 +1,72 @@
+package org.vtb.multibanking.service.bank.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.vtb.multibanking.config.BankConfig;
+import org.vtb.multibanking.model.BankHealth;
+import org.vtb.multibanking.model.BankType;
+import org.vtb.multibanking.model.CircuitState;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+@Slf4j
+@Component
+public class BankResilienceRegistry {
+
+    private final Map<BankType, BankResilience> resilienceByBank = new EnumMap<>(BankType.class);
+
+    public BankResilienceRegistry(BankConfig bankConfig, MeterRegistry meterRegistry) {
+        BankConfig.ResilienceConfig config = bankConfig.getResilience();
+        for (BankType bankType : BankType.values()) {
+            String bank = bankType.name();
+            CircuitBreaker circuitBreaker = new CircuitBreaker(config, (from, to) -> {
+                log.warn("Circuit breaker банка {}: {} -> {}", bankType, from, to);
+                meterRegistry.counter("bank.circuit.transitions", "bank", bank, "from", from.name(), "to", to.name()).increment();
+            });
+            Counter circuitRejected = meterRegistry.counter("bank.calls.rejected", "bank", bank, "reason", "circuit_open");
+            Counter bulkheadRejected = meterRegistry.counter("bank.calls.rejected", "bank", bank, "reason", "bulkhead_full");
+            BankResilience resilience = new BankResilience(bankType, circuitBreaker, config.getMaxConcurrentCalls(),
+                    circuitRejected::increment, bulkheadRejected::increment);
+            resilienceByBank.put(bankType, resilience);
+
+            // 0 - CLOSED, 1 - HALF_OPEN, 2 - OPEN
+            Gauge.builder("bank.circuit.state", resilience, r -> r.circuitBreaker().getState().ordinal())
+                    .tag("bank", bank)
+                    .register(meterRegistry);
+            Gauge.builder("bank.circuit.failure.rate", resilience, r -> r.circuitBreaker().failureRate())
+                    .tag("bank", bank)
+                    .register(meterRegistry);
+            Gauge.builder("bank.bulkhead.available", resilience, BankResilience::availableCalls)
+                    .tag("bank", bank)
+                    .register(meterRegistry);
+        }
+    }
+
+    public BankResilience forBank(BankType bankType) {
+        return resilienceByBank.get(bankType);
+    }
+
+    /* По имени банка из конфигурации (vbank, abank...); null для адресов вне списка банков */
+    public BankResilience forBank(String bank) {
+        for (BankType bankType : resilienceByBank.keySet()) {
+            if (bankType.name().equalsIgnoreCase(bank)) {
+                return resilienceByBank.get(bankType);
+            }
+        }
+        return null;
+    }
+
+    public CircuitState getState(BankType bankType) {
+        return resilienceByBank.get(bankType).getHealth().getState();
+    }
+
+    public Map<BankType, BankHealth> getHealth() {
+        Map<BankType, BankHealth> health = new EnumMap<>(BankType.class);
+        resilienceByBank.forEach((bankType, resilience) -> health.put(bankType, resilience.getHealth()));
+        return health;
+    }
+}
@@ -0,0 +1,15 @@
+package org.vtb.multibanking.service.bank.resilience;
+
+import lombok.Getter;
+import org.vtb.multibanking.model.BankType;
+
+/* Вызов отклонён без обращения к банку; стек не собирается, чтобы отказ стоил микросекунды */
+@Getter
+public class BankUnavailableException extends RuntimeException {
+    private final BankType bankType;
+
+    public BankUnavailableException(BankType bankType, String reason) {
+        super("Банк " + bankType + " временно недоступен: " + reason, null, false, false);
+        this.bankType = bankType;
+    }
+}
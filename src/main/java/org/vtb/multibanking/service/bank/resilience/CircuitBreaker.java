@@ -0,0 +1,149 @@
+package org.vtb.multibanking.service.bank.resilience;
+
+import org.vtb.multibanking.config.BankConfig;
+import org.vtb.multibanking.model.CircuitState;
+
+import java.util.function.BiConsumer;
+
+/*
+ Circuit breaker по скользящему окну последних slidingWindowSize вызовов.
+ CLOSED -> OPEN: доля ошибок или медленных вызовов достигла порога (при не менее minimumCalls вызовах).
+ OPEN -> HALF_OPEN: прошло openDuration; пропускается не более halfOpenCalls пробных вызовов.
+ HALF_OPEN -> CLOSED: все пробные вызовы успешны; любая ошибка или медленный вызов снова открывают цепь.
+ */
+public class CircuitBreaker {
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final float failureRateThreshold;
+    private final float slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final BiConsumer<CircuitState, CircuitState> transitionListener;
+
+    private final boolean[] failedCalls;
+    private final boolean[] slowCalls;
+    private int position;
+    private int recorded;
+    private int failures;
+    private int slow;
+
+    private CircuitState state = CircuitState.CLOSED;
+    private long openedAtNanos;
+    private int halfOpenPermitted;
+    private int halfOpenSucceeded;
+
+    public CircuitBreaker(BankConfig.ResilienceConfig config, BiConsumer<CircuitState, CircuitState> transitionListener) {
+        this.windowSize = config.getSlidingWindowSize();
+        this.minimumCalls = Math.min(config.getMinimumCalls(), windowSize);
+        this.failureRateThreshold = config.getFailureRateThreshold();
+        this.slowCallRateThreshold = config.getSlowCallRateThreshold();
+        this.slowCallNanos = config.getSlowCallDuration().toNanos();
+        this.openNanos = config.getOpenDuration().toNanos();
+        this.halfOpenCalls = config.getHalfOpenCalls();
+        this.transitionListener = transitionListener;
+        this.failedCalls = new boolean[windowSize];
+        this.slowCalls = new boolean[windowSize];
+    }
+
+    public synchronized boolean tryAcquirePermission() {
+        if (state == CircuitState.OPEN) {
+            if (System.nanoTime() - openedAtNanos < openNanos) {
+                return false;
+            }
+            transitionTo(CircuitState.HALF_OPEN);
+        }
+        if (state == CircuitState.HALF_OPEN) {
+            if (halfOpenPermitted >= halfOpenCalls) {
+                return false;
+            }
+            halfOpenPermitted++;
+        }
+        return true;
+    }
+
+    /* Вызов завершился ошибкой, не говорящей о состоянии банка (например, 4xx): пробное разрешение возвращается */
+    public synchronized void releasePermission() {
+        if (state == CircuitState.HALF_OPEN && halfOpenPermitted > 0) {
+            halfOpenPermitted--;
+        }
+    }
+
+    public synchronized void onResult(boolean failed, long durationNanos) {
+        boolean slowCall = durationNanos >= slowCallNanos;
+        switch (state) {
+            case HALF_OPEN -> {
+                if (failed || slowCall) {
+                    transitionTo(CircuitState.OPEN);
+                } else if (++halfOpenSucceeded >= halfOpenCalls) {
+                    transitionTo(CircuitState.CLOSED);
+                }
+            }
+            case CLOSED -> {
+                record(failed, slowCall);
+                if (recorded >= minimumCalls
+                        && (failureRate() >= failureRateThreshold || slowCallRate() >= slowCallRateThreshold)) {
+                    transitionTo(CircuitState.OPEN);
+                }
+            }
+            case OPEN -> {
+                // Поздние ответы на вызовы, начатые до открытия цепи, не учитываются
+            }
+        }
+    }
+
+    public synchronized CircuitState getState() {
+        if (state == CircuitState.OPEN && System.nanoTime() - openedAtNanos >= openNanos) {
+            return CircuitState.HALF_OPEN;
+        }
+        return state;
+    }
+
+    public synchronized float failureRate() {
+        return recorded == 0 ? 0 : failures * 100f / recorded;
+    }
+
+    public synchronized float slowCallRate() {
+        return recorded == 0 ? 0 : slow * 100f / recorded;
+    }
+
+    private void record(boolean failed, boolean slowCall) {
+        if (recorded == windowSize) {
+            if (failedCalls[position]) {
+                failures--;
+            }
+            if (slowCalls[position]) {
+                slow--;
+            }
+        } else {
+            recorded++;
+        }
+        failedCalls[position] = failed;
+        slowCalls[position] = slowCall;
+        if (failed) {
+            failures++;
+        }
+        if (slowCall) {
+            slow++;
+        }
+        position = (position + 1) % windowSize;
+    }
+
+    private void transitionTo(CircuitState newState) {
+        CircuitState previous = state;
+        state = newState;
+        halfOpenPermitted = 0;
+        halfOpenSucceeded = 0;
+        if (newState == CircuitState.OPEN) {
+            openedAtNanos = System.nanoTime();
+        }
+        if (newState == CircuitState.CLOSED) {
+            position = 0;
+            recorded = 0;
+            failures = 0;
+            slow = 0;
+        }
+        transitionListener.accept(previous, newState);
+    }
+}
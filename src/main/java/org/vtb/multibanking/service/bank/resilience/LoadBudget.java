@@ -0,0 +1,31 @@
+package org.vtb.multibanking.service.bank.resilience;
+
+/*
+ Бюджет дополнительной нагрузки на банк: каждый основной запрос добавляет ratio токена,
+ каждый дополнительный (хедж или повтор) тратит целый токен. Так дополнительных запросов
+ в долгую не больше ratio от основных, а при сбое банка они быстро заканчиваются.
+ */
+public class LoadBudget {
+
+    private final double ratio;
+    private final double capacity;
+    private double tokens;
+
+    public LoadBudget(double ratio, double initialTokens, double capacity) {
+        this.ratio = ratio;
+        this.capacity = capacity;
+        this.tokens = initialTokens;
+    }
+
+    public synchronized void onRequest() {
+        tokens = Math.min(capacity, tokens + ratio);
+    }
+
+    public synchronized boolean tryAcquire() {
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+}
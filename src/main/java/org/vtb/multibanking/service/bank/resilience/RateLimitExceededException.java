@@ -0,0 +1,16 @@
+package org.vtb.multibanking.service.bank.resilience;
+
+import lombok.Getter;
+
+/* Локальный лимит запросов к банку исчерпан; банк не вызывался, на состояние circuit breaker не влияет */
+@Getter
+public class RateLimitExceededException extends RuntimeException {
+    private final String bank;
+    private final String endpoint;
+
+    public RateLimitExceededException(String bank, String endpoint) {
+        super("Превышен лимит запросов к банку " + bank + " (" + endpoint + ")", null, false, false);
+        this.bank = bank;
+        this.endpoint = endpoint;
+    }
+}
@@ -0,0 +1,82 @@
+package org.vtb.multibanking.service.bank.resilience;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ Гистограмма задержек за последние window, разбитая на slices интервалов: устаревший интервал
+ обнуляется при первой записи в него. Границы корзин растут в 2^(1/4) раза (шаг ~19%), от 1 мс до ~15 минут.
+ */
+public class RollingLatencyHistogram {
+
+    private static final int BUCKETS = 80;
+
+    private final long sliceNanos;
+    private final AtomicLongArray[] slices;
+    private final AtomicLongArray sliceEpochs;
+
+    public RollingLatencyHistogram(Duration window, int sliceCount) {
+        this.sliceNanos = window.toNanos() / sliceCount;
+        this.slices = new AtomicLongArray[sliceCount];
+        for (int i = 0; i < sliceCount; i++) {
+            slices[i] = new AtomicLongArray(BUCKETS);
+        }
+        this.sliceEpochs = new AtomicLongArray(sliceCount);
+    }
+
+    public void record(long durationNanos) {
+        long epoch = System.nanoTime() / sliceNanos;
+        int index = (int) Math.floorMod(epoch, (long) slices.length);
+        if (sliceEpochs.get(index) != epoch) {
+            synchronized (this) {
+                if (sliceEpochs.get(index) != epoch) {
+                    for (int i = 0; i < BUCKETS; i++) {
+                        slices[index].set(i, 0);
+                    }
+                    sliceEpochs.set(index, epoch);
+                }
+            }
+        }
+        slices[index].incrementAndGet(bucketOf(durationNanos / 1_000_000d));
+    }
+
+    /* Верхняя граница корзины, в которую попадает перцентиль; -1, если замеров меньше minSamples */
+    public long percentileMillis(double percentile, int minSamples) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        long epoch = System.nanoTime() / sliceNanos;
+        for (int slice = 0; slice < slices.length; slice++) {
+            if (epoch - sliceEpochs.get(slice) >= slices.length) {
+                continue;
+            }
+            for (int i = 0; i < BUCKETS; i++) {
+                long count = slices[slice].get(i);
+                counts[i] += count;
+                total += count;
+            }
+        }
+        if (total < minSamples || total == 0) {
+            return -1;
+        }
+        long rank = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return upperBoundMillis(i);
+            }
+        }
+        return upperBoundMillis(BUCKETS - 1);
+    }
+
+    private static int bucketOf(double millis) {
+        if (millis <= 1) {
+            return 0;
+        }
+        return (int) Math.min(BUCKETS - 1, Math.ceil(4 * Math.log(millis) / Math.log(2)));
+    }
+
+    private static long upperBoundMillis(int bucket) {
+        return (long) Math.ceil(Math.pow(2, bucket / 4d));
+    }
+}
@@ -0,0 +1,57 @@
+package org.vtb.multibanking.service.bank.resilience;
+
+/* Простой token bucket: ёмкость capacity, пополнение ratePerSecond токенов в секунду */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerNano;
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucket(double ratePerSecond, double capacity) {
+        this.capacity = capacity;
+        this.refillPerNano = ratePerSecond / 1_000_000_000d;
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized boolean hasToken() {
+        refill();
+        return tokens >= 1;
+    }
+
+    /* Сколько наносекунд ждать до появления следующего токена */
+    public synchronized long nanosUntilToken() {
+        refill();
+        return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / refillPerNano);
+    }
+
+    /*
+     Резервирует токен, даже если его ещё нет: следующие вызовы встают в очередь за этим.
+     Возвращает, сколько наносекунд ждать до использования токена, или -1, если ждать дольше maxWaitNanos
+     */
+    public synchronized long reserve(long maxWaitNanos) {
+        refill();
+        long waitNanos = tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / refillPerNano);
+        if (waitNanos > maxWaitNanos) {
+            return -1;
+        }
+        tokens -= 1;
+        return waitNanos;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * refillPerNano);
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,99 @@
+package org.vtb.multibanking.service.catalog;
+
+import lombok.Getter;
+import org.vtb.multibanking.model.BankAggregationStatus;
+import org.vtb.multibanking.model.BankType;
+import org.vtb.multibanking.model.Product;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ Неизменяемый снимок каталога. Для каждой комбинации (банк или все, тип продукта или все, порядок сортировки)
+ список продуктов построен заранее, поэтому запрос каталога - поиск в HashMap.
+ */
+public class ProductCatalog {
+
+    @Getter
+    private final Map<BankType, BankAggregationStatus> bankStatuses;
+    @Getter
+    private final Instant refreshedAt;
+    @Getter
+    private final Map<BankType, List<Product>> productsByBank;
+    private final Map<IndexKey, List<Product>> index = new HashMap<>();
+
+    public ProductCatalog(Map<BankType, List<Product>> productsByBank,
+                          Map<BankType, BankAggregationStatus> bankStatuses, Instant refreshedAt) {
+        this.productsByBank = Map.copyOf(productsByBank);
+        this.bankStatuses = Map.copyOf(bankStatuses);
+        this.refreshedAt = refreshedAt;
+
+        List<Product> all = new ArrayList<>();
+        Set<String> productTypes = new LinkedHashSet<>();
+        for (BankType bankType : BankType.values()) {
+            List<Product> bankProducts = productsByBank.getOrDefault(bankType, List.of());
+            all.addAll(bankProducts);
+            bankProducts.forEach(product -> productTypes.add(normalizeType(product.getProductType())));
+        }
+
+        List<BankType> bankKeys = new ArrayList<>();
+        bankKeys.add(null);
+        bankKeys.addAll(List.of(BankType.values()));
+        List<String> typeKeys = new ArrayList<>();
+        typeKeys.add(null);
+        typeKeys.addAll(productTypes);
+
+        for (BankType bankType : bankKeys) {
+            for (String productType : typeKeys) {
+                List<Product> products = all.stream()
+                        .filter(product -> bankType == null || product.getBankType() == bankType)
+                        .filter(product -> productType == null || productType.equals(normalizeType(product.getProductType())))
+                        .toList();
+                index.put(new IndexKey(bankType, productType, null), products);
+                for (ProductSortOrder order : ProductSortOrder.values()) {
+                    index.put(new IndexKey(bankType, productType, order), order.sort(products));
+                }
+            }
+        }
+    }
+
+    /* Те же правила, что у прежней фильтрации: банк и тип без учёта регистра, неизвестный sortBy - без сортировки */
+    public List<Product> find(String bankType, String productType, String sortBy) {
+        BankType bank = null;
+        if (bankType != null && !bankType.isEmpty()) {
+            bank = parseBank(bankType);
+            if (bank == null) {
+                return List.of();
+            }
+        }
+        String type = productType != null && !productType.isEmpty() ? normalizeType(productType) : null;
+        ProductSortOrder order = ProductSortOrder.fromKey(sortBy).orElse(null);
+        return index.getOrDefault(new IndexKey(bank, type, order), List.of());
+    }
+
+    public int size() {
+        return index.get(new IndexKey(null, null, null)).size();
+    }
+
+    private static BankType parseBank(String bankType) {
+        for (BankType type : BankType.values()) {
+            if (type.name().equalsIgnoreCase(bankType)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    private static String normalizeType(String productType) {
+        return productType == null ? "" : productType.toLowerCase(Locale.ROOT);
+    }
+
+    private record IndexKey(BankType bankType, String productType, ProductSortOrder order) {
+    }
+}
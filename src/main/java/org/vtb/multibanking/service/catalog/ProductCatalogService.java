@@ -0,0 +1,138 @@
+package org.vtb.multibanking.service.catalog;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.vtb.multibanking.model.BankAggregationStatus;
+import org.vtb.multibanking.model.BankType;
+import org.vtb.multibanking.model.Product;
+import org.vtb.multibanking.service.bank.BankClient;
+import org.vtb.multibanking.service.bank.BankFanOutResult;
+import org.vtb.multibanking.service.bank.BankFanOutService;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/*
+ Каталог продуктов одинаков для всех пользователей и меняется редко: он загружается со всех банков
+ в фоне, а запросы читают готовый снимок. Если банк не ответил, в снимке остаются его прошлые продукты,
+ а сам банк перезапрашивается отдельно с нарастающей задержкой (retry-initial, 2 * retry-initial...
+ до retry-max), не дожидаясь следующего полного обновления. Так неудачный старт не оставляет
+ каталог пустым или неполным на весь refresh-interval.
+ */
+@Slf4j
+@Service
+public class ProductCatalogService {
+
+    private final BankFanOutService bankFanOutService;
+    private final Duration retryInitial;
+    private final Duration retryMax;
+    private final ScheduledExecutorService retryScheduler;
+    private volatile ProductCatalog catalog;
+    private int retryAttempt;
+    private ScheduledFuture<?> pendingRetry;
+
+    public ProductCatalogService(BankFanOutService bankFanOutService,
+                                 @Value("${app.catalog.retry-initial:5s}") Duration retryInitial,
+                                 @Value("${app.catalog.retry-max:2m}") Duration retryMax) {
+        this.bankFanOutService = bankFanOutService;
+        this.retryInitial = retryInitial;
+        this.retryMax = retryMax;
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("catalog-retry-"));
+    }
+
+    public ProductCatalog getCatalog() {
+        ProductCatalog current = catalog;
+        return current != null ? current : loadFirst();
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.catalog.refresh-interval-ms:600000}")
+    public void refresh() {
+        refreshBanks(BankFanOutService.allBanks());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        retryScheduler.shutdownNow();
+    }
+
+    /* Обновляет каталог указанных банков; остальные банки остаются в снимке как были */
+    private synchronized void refreshBanks(Collection<BankType> bankTypes) {
+        BankFanOutResult<List<Product>> fanOut = bankFanOutService.fanOutAsync(null, bankTypes,
+                BankClient::getProductsCatalogAsync);
+
+        ProductCatalog previous = catalog;
+        Map<BankType, List<Product>> productsByBank = new EnumMap<>(BankType.class);
+        Map<BankType, BankAggregationStatus> bankStatuses = new EnumMap<>(BankType.class);
+        if (previous != null) {
+            productsByBank.putAll(previous.getProductsByBank());
+            bankStatuses.putAll(previous.getBankStatuses());
+        }
+        bankStatuses.putAll(fanOut.bankStatuses());
+
+        Set<BankType> failed = EnumSet.noneOf(BankType.class);
+        for (BankType bankType : bankTypes) {
+            List<Product> products = fanOut.results().get(bankType);
+            if (products != null) {
+                productsByBank.put(bankType, List.copyOf(products));
+            } else {
+                failed.add(bankType);
+                if (productsByBank.containsKey(bankType)) {
+                    log.warn("Каталог банка {} не обновлён, используются данные от {}", bankType, previous.getRefreshedAt());
+                } else {
+                    log.warn("Каталог банка {} ещё ни разу не загружен", bankType);
+                }
+            }
+        }
+
+        catalog = new ProductCatalog(productsByBank, bankStatuses, Instant.now());
+        log.info("Каталог продуктов обновлён: {} продуктов", catalog.size());
+        scheduleRetry(failed);
+    }
+
+    private void scheduleRetry(Set<BankType> failed) {
+        if (pendingRetry != null) {
+            pendingRetry.cancel(false);
+            pendingRetry = null;
+        }
+        if (failed.isEmpty()) {
+            retryAttempt = 0;
+            return;
+        }
+        long delayMillis = Math.min(retryMax.toMillis(), retryInitial.toMillis() << Math.min(retryAttempt, 20));
+        retryAttempt++;
+        log.info("Повторная загрузка каталога банков {} через {} мс", failed, delayMillis);
+        try {
+            pendingRetry = retryScheduler.schedule(() -> {
+                try {
+                    refreshBanks(failed);
+                } catch (Exception e) {
+                    log.warn("Ошибка повторной загрузки каталога: {}", e.getMessage());
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Приложение останавливается
+        }
+    }
+
+    private synchronized ProductCatalog loadFirst() {
+        if (catalog == null) {
+            refresh();
+        }
+        return catalog;
+    }
+}
@@ -0,0 +1,77 @@
+package org.vtb.multibanking.service.catalog;
+
+import org.vtb.multibanking.model.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/* Поддерживаемые значения sortBy. Ставка разбирается один раз на продукт, а не при каждом сравнении */
+public enum ProductSortOrder {
+    INTEREST_DESC("interest_desc"),
+    INTEREST_ASC("interest_asc"),
+    NAME_DESC("name_desc"),
+    NAME_ASC("name_asc"),
+    BANK("bank");
+
+    private static final Comparator<Product> BY_NAME =
+            Comparator.comparing(Product::getProductName, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final String key;
+
+    ProductSortOrder(String key) {
+        this.key = key;
+    }
+
+    public static Optional<ProductSortOrder> fromKey(String key) {
+        return Arrays.stream(values())
+                .filter(order -> order.key.equals(key))
+                .findFirst();
+    }
+
+    public List<Product> sort(List<Product> products) {
+        return switch (this) {
+            case INTEREST_DESC -> sortByRate(products, true);
+            case INTEREST_ASC -> sortByRate(products, false);
+            case NAME_DESC -> sorted(products, BY_NAME.reversed());
+            case NAME_ASC -> sorted(products, BY_NAME);
+            case BANK -> sorted(products, Comparator.comparing(product -> product.getBankType().name()));
+        };
+    }
+
+    /* "7.5", "7,5" и "7.5%" дают 7.5; пустая или неразборчивая ставка считается нулевой */
+    public static double interestRate(Product product) {
+        String rate = product.getInterestRate();
+        if (rate == null || rate.isBlank()) {
+            return 0;
+        }
+        try {
+            return Double.parseDouble(rate.replace("%", "").replace(',', '.').trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static List<Product> sortByRate(List<Product> products, boolean descending) {
+        List<RatedProduct> rated = new ArrayList<>(products.size());
+        for (Product product : products) {
+            rated.add(new RatedProduct(interestRate(product), product));
+        }
+        Comparator<RatedProduct> byRate = Comparator.comparingDouble(RatedProduct::rate);
+        rated.sort(descending ? byRate.reversed() : byRate);
+        return rated.stream()
+                .map(RatedProduct::product)
+                .toList();
+    }
+
+    private static List<Product> sorted(List<Product> products, Comparator<Product> comparator) {
+        List<Product> sorted = new ArrayList<>(products);
+        sorted.sort(comparator);
+        return List.copyOf(sorted);
+    }
+
+    private record RatedProduct(double rate, Product product) {
+    }
+}
@@ -0,0 +1,131 @@
+package org.vtb.multibanking.service.cluster;
+
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.vtb.multibanking.entity.ClusterNodeEntity;
+import org.vtb.multibanking.model.events.ClusterMembershipEvent;
+import org.vtb.multibanking.repository.ClusterNodeRepository;
+
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/*
+ Состав кластера по heartbeat-записям в Mongo. Фоновая работа по клиенту достаётся одному узлу
+ по rendezvous-хешированию (узел с максимальным hash(nodeId, clientId)): при входе или уходе узла
+ переезжают только клиенты этого узла, остальные остаются на своих местах.
+ */
+@Slf4j
+@Service
+public class ClusterMembershipService {
+
+    private final ClusterNodeRepository clusterNodeRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration nodeTtl;
+    private final Instant startedAt = Instant.now();
+
+    @Getter
+    private final String nodeId;
+
+    @Getter
+    private volatile List<String> liveNodes = List.of();
+
+    public ClusterMembershipService(ClusterNodeRepository clusterNodeRepository,
+                                    ApplicationEventPublisher eventPublisher,
+                                    @Value("${app.cluster.node-id:}") String nodeId,
+                                    @Value("${app.cluster.node-ttl:30s}") Duration nodeTtl) {
+        this.clusterNodeRepository = clusterNodeRepository;
+        this.eventPublisher = eventPublisher;
+        this.nodeTtl = nodeTtl;
+        this.nodeId = StringUtils.hasText(nodeId) ? nodeId : defaultNodeId();
+        log.info("Идентификатор узла кластера: {}", this.nodeId);
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.cluster.heartbeat-interval-ms:10000}")
+    public void heartbeat() {
+        Instant now = Instant.now();
+        try {
+            ClusterNodeEntity node = new ClusterNodeEntity();
+            node.setNodeId(nodeId);
+            node.setLastHeartbeat(now);
+            node.setStartedAt(startedAt);
+            clusterNodeRepository.save(node);
+
+            List<String> nodes = clusterNodeRepository.findByLastHeartbeatAfter(now.minus(nodeTtl)).stream()
+                    .map(ClusterNodeEntity::getNodeId)
+                    .sorted()
+                    .toList();
+            if (!nodes.equals(liveNodes)) {
+                log.info("Состав кластера изменился: {} -> {}", liveNodes, nodes);
+                liveNodes = nodes;
+                eventPublisher.publishEvent(new ClusterMembershipEvent(this, nodes));
+            }
+        } catch (Exception e) {
+            // Без связи с Mongo узел продолжает работать с последним известным составом
+            log.warn("Не удалось обновить heartbeat узла {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    /* Отвечает ли этот узел за фоновую работу по клиенту. Пока состав неизвестен, узел считает себя единственным */
+    public boolean owns(String clientId) {
+        List<String> nodes = liveNodes;
+        if (nodes.size() <= 1) {
+            return true;
+        }
+        return nodeId.equals(ownerOf(clientId, nodes));
+    }
+
+    public static String ownerOf(String clientId, List<String> nodes) {
+        String owner = null;
+        long maxWeight = Long.MIN_VALUE;
+        for (String node : nodes) {
+            long weight = weight(node, clientId);
+            if (owner == null || weight > maxWeight || (weight == maxWeight && node.compareTo(owner) < 0)) {
+                owner = node;
+                maxWeight = weight;
+            }
+        }
+        return owner;
+    }
+
+    @PreDestroy
+    public void leave() {
+        try {
+            clusterNodeRepository.deleteById(nodeId);
+        } catch (Exception e) {
+            log.warn("Не удалось снять узел {} с учёта: {}", nodeId, e.getMessage());
+        }
+    }
+
+    /* FNV-1a 64 с финальным перемешиванием: String.hashCode слишком плохо распределён для rendezvous */
+    private static long weight(String node, String clientId) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : (node + '\u0000' + clientId).getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
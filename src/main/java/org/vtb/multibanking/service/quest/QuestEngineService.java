@@ -12,6 +12,7 @@ import org.vtb.multibanking.entity.quest.QuestEntity;
 import org.vtb.multibanking.entity.quest.UserProfileEntity;
 import org.vtb.multibanking.entity.quest.UserQuestEntity;
 import org.vtb.multibanking.model.Account;
+import org.vtb.multibanking.model.Money;
 import org.vtb.multibanking.model.Product;
 import org.vtb.multibanking.model.Transaction;
 import org.vtb.multibanking.model.quest.QuestStatus;
@@ -22,7 +23,6 @@ import org.vtb.multibanking.repository.QuestRepository;
 import org.vtb.multibanking.repository.UserProfileRepository;
 import org.vtb.multibanking.repository.UserQuestRepository;
 
-import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.Comparator;
 import java.util.List;
@@ -88,9 +88,8 @@ public class QuestEngineService {
     private boolean isTransactionQuestConditionMet(QuestEntity quest, Transaction transaction) {
         switch (quest.getQuestType()) {
             case TRANSFER_AMOUNT -> {
-                if (quest.getMinAmount() != null) {
-                    BigDecimal txAmount = new BigDecimal(transaction.getAmount().getAmount());
-                    return txAmount.compareTo(quest.getMinAmount()) >= 0;
+                if (quest.getMinAmount() != null && transaction.getAmount() != null) {
+                    return transaction.getAmount().getMoney().isAtLeast(quest.getMinAmount());
                 }
             }
             case PAYMENT_OPERATION -> {
@@ -112,8 +111,7 @@ public class QuestEngineService {
             }
             case DEPOSIT_AMOUNT -> {
                 if ("deposit".equals(product.getProductType()) && quest.getMinAmount() != null) {
-                    BigDecimal productAmount = new BigDecimal(product.getMinAmount());
-                    return productAmount.compareTo(quest.getMinAmount()) >= 0;
+                    return Money.parse(product.getMinAmount(), null).isAtLeast(quest.getMinAmount());
                 }
                 return false;
             }
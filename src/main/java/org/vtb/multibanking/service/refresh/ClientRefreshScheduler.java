@@ -0,0 +1,474 @@
+package org.vtb.multibanking.service.refresh;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.vtb.multibanking.config.ExecutorFactory;
+import org.vtb.multibanking.entity.ActiveClientEntity;
+import org.vtb.multibanking.model.BankType;
+import org.vtb.multibanking.model.events.ClusterMembershipEvent;
+import org.vtb.multibanking.repository.ActiveClientRepository;
+import org.vtb.multibanking.service.AggregationService;
+import org.vtb.multibanking.service.bank.resilience.BankCallPolicy;
+import org.vtb.multibanking.service.bank.resilience.TokenBucket;
+import org.vtb.multibanking.service.cluster.ClusterMembershipService;
+import org.vtb.multibanking.service.snapshot.AggregationKey;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/*
+ Фоновое обновление агрегаций всех активных клиентов вместо одного последнего.
+ Каждый клиент, запросивший агрегацию, попадает в DelayQueue со своим сроком следующего обновления:
+ interval ± jitter, для клиентов без обращений дольше idle-after - interval * idle-multiplier.
+ Раз в tick созревшие записи забираются из очереди, сортируются (сначала активные клиенты, затем самые
+ старые данные) и отдаются ограниченному пулу; забирается не больше записей, чем свободных обработчиков.
+ Обновление требует токен из лимита каждого своего банка. Лимит выводится из лимитов BankCallPolicy:
+ доля bank-rate-share от запросов в секунду самого узкого эндпоинта, делённая на число его вызовов за одну
+ агрегацию (accounts-per-client для балансов и транзакций). Так фоновые обновления не выбирают весь лимит банка
+ и оставляют место пользовательским запросам. Если токена или обработчика нет, клиент откладывается
+ с экспоненциальной задержкой, а не на каждый tick. Отложенные клиенты видны в refresh.backlog,
+ отставание от графика - в refresh.lag.seconds; при отставании больше интервала пишется предупреждение.
+ Так нагрузка распределяется по всему интервалу, а не приходится на начало каждого cron-тика.
+
+ Активные клиенты всех узлов хранятся в Mongo (active_clients), а обновляет клиента только узел-владелец
+ по ClusterMembershipService. При изменении состава кластера узел дочитывает доставшихся ему клиентов.
+ Запись в Mongo и дочитывание идут в отдельном потоке client-refresh-store, а не в пуле обновлений:
+ обращения копятся и сохраняются пачками раз в tick, поэтому не занимают обработчики и не стоят
+ в очереди перед обновлениями.
+ Лимит обновлений рассчитан на весь кластер и делится на число живых узлов, поэтому N узлов вместе
+ не превышают выделенную долю. Ограничение: лимиты BankCallPolicy для остальных запросов считаются
+ на каждом узле отдельно, и суммарная нагрузка пользовательских запросов на банк растёт с числом узлов.
+ */
+@Slf4j
+@Service
+public class ClientRefreshScheduler {
+
+    private static final int PERSIST_BATCH = 500;
+
+    private final AggregationService aggregationService;
+    private final ClusterMembershipService clusterMembershipService;
+    private final ActiveClientRepository activeClientRepository;
+    private final boolean enabled;
+    private final Duration interval;
+    private final double jitter;
+    private final Duration idleAfter;
+    private final int idleMultiplier;
+    private final Duration tick;
+    private final int maxBatch;
+    private final Duration persistInterval;
+    private final Duration maxDeferDelay;
+    private final double clusterRefreshesPerSecond;
+    private volatile int nodeCount = 1;
+    private volatile Instant lastSyncAt = Instant.EPOCH;
+    private long lastLagWarningNanos;
+
+    private final Cache<AggregationKey, ActiveClient> activeClients;
+    private final DelayQueue<ScheduledRefresh> queue = new DelayQueue<>();
+    private final Map<BankType, TokenBucket> bankRateLimits = new EnumMap<>(BankType.class);
+    private final Executor workers;
+    private final Semaphore workerPermits;
+    private final ScheduledExecutorService ticker;
+    private final ScheduledExecutorService store;
+    /* Обращения, ещё не сохранённые в active_clients: ключ - время последнего обращения */
+    private final Map<AggregationKey, Instant> pendingPersists = new ConcurrentHashMap<>();
+    private final AtomicInteger backlog = new AtomicInteger();
+
+    private final Counter refreshSucceeded;
+    private final Counter refreshFailed;
+    private final Counter deferredNoWorker;
+    private final Counter deferredRateLimit;
+    private final Counter skippedNotOwner;
+
+    public ClientRefreshScheduler(AggregationService aggregationService,
+                                  ClusterMembershipService clusterMembershipService,
+                                  ActiveClientRepository activeClientRepository,
+                                  BankCallPolicy bankCallPolicy,
+                                  ExecutorFactory executorFactory,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.scheduler.enabled:true}") boolean enabled,
+                                  @Value("${app.scheduler.interval:5m}") Duration interval,
+                                  @Value("${app.scheduler.jitter:0.1}") double jitter,
+                                  @Value("${app.scheduler.idle-after:30m}") Duration idleAfter,
+                                  @Value("${app.scheduler.idle-multiplier:4}") int idleMultiplier,
+                                  @Value("${app.scheduler.active-ttl:24h}") Duration activeTtl,
+                                  @Value("${app.scheduler.max-clients:200000}") long maxClients,
+                                  @Value("${app.scheduler.tick:1s}") Duration tick,
+                                  @Value("${app.scheduler.max-batch:2000}") int maxBatch,
+                                  @Value("${app.scheduler.workers:8}") int workers,
+                                  @Value("${app.scheduler.bank-rate-share:0.5}") double bankRateShare,
+                                  @Value("${app.scheduler.accounts-per-client:3}") int accountsPerClient,
+                                  @Value("${app.scheduler.persist-interval:1m}") Duration persistInterval) {
+        this.aggregationService = aggregationService;
+        this.clusterMembershipService = clusterMembershipService;
+        this.activeClientRepository = activeClientRepository;
+        this.persistInterval = persistInterval;
+        this.enabled = enabled;
+        this.interval = interval;
+        this.jitter = jitter;
+        this.idleAfter = idleAfter;
+        this.idleMultiplier = idleMultiplier;
+        this.tick = tick;
+        this.maxBatch = maxBatch;
+        this.maxDeferDelay = interval.dividedBy(4);
+
+        this.activeClients = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(activeTtl)
+                .removalListener((AggregationKey key, ActiveClient client, RemovalCause cause) -> {
+                    if (client != null) {
+                        client.removed = true;
+                    }
+                })
+                .build();
+        int callsPerAccount = Math.max(1, accountsPerClient);
+        this.clusterRefreshesPerSecond = bankRateShare * Math.min(bankCallPolicy.requestsPerSecond("accounts"),
+                Math.min(bankCallPolicy.requestsPerSecond("balances"), bankCallPolicy.requestsPerSecond("transactions")) / callsPerAccount);
+        resetBankRateLimits();
+        this.workers = executorFactory.newExecutor("client-refresh", workers);
+        this.workerPermits = new Semaphore(workers);
+        this.ticker = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("client-refresh-tick-"));
+        this.store = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("client-refresh-store-"));
+
+        Gauge.builder("refresh.clients.active", activeClients, Cache::estimatedSize).register(meterRegistry);
+        Gauge.builder("refresh.queue.size", queue, DelayQueue::size).register(meterRegistry);
+        Gauge.builder("refresh.backlog", backlog, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("refresh.lag.seconds", this, scheduler -> scheduler.lagNanos() / 1e9).register(meterRegistry);
+        Gauge.builder("refresh.persist.pending", pendingPersists, Map::size).register(meterRegistry);
+        Gauge.builder("refresh.capacity.per.interval", this, ClientRefreshScheduler::capacityPerInterval).register(meterRegistry);
+        this.refreshSucceeded = meterRegistry.counter("refresh.runs", "result", "success");
+        this.refreshFailed = meterRegistry.counter("refresh.runs", "result", "failure");
+        this.deferredNoWorker = meterRegistry.counter("refresh.deferred", "reason", "workers");
+        this.deferredRateLimit = meterRegistry.counter("refresh.deferred", "reason", "rate_limit");
+        this.skippedNotOwner = meterRegistry.counter("refresh.skipped", "reason", "other_node");
+
+        if (enabled) {
+            log.info("Фоновое обновление: до {} обновлений/с на банк по кластеру, до {} клиентов узла за интервал {}",
+                    String.format("%.2f", clusterRefreshesPerSecond), (long) capacityPerInterval(), interval);
+            ticker.scheduleWithFixedDelay(this::dispatchDue, tick.toMillis(), tick.toMillis(), TimeUnit.MILLISECONDS);
+            store.scheduleWithFixedDelay(this::persistPending, tick.toMillis(), tick.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /* Отмечает обращение клиента; новый клиент ставится в очередь на обновление через interval ± jitter */
+    public void touch(String clientId, List<BankType> bankTypes) {
+        if (!enabled || clientId == null) {
+            return;
+        }
+        ActiveClient client = activeClients.get(AggregationKey.of(clientId, bankTypes), key -> {
+            ActiveClient created = new ActiveClient(key);
+            created.lastRefreshedNanos = System.nanoTime();
+            schedule(created, nextDelay(created));
+            return created;
+        });
+        long now = System.nanoTime();
+        client.lastAccessNanos = now;
+        if (!client.persisted || now - client.lastPersistedNanos > persistInterval.toNanos()) {
+            client.persisted = true;
+            client.lastPersistedNanos = now;
+            pendingPersists.put(client.key, Instant.now());
+        }
+    }
+
+    /* Подхватывает клиентов, активных на других узлах, но принадлежащих этому */
+    @Scheduled(fixedDelayString = "${app.cluster.sync-interval-ms:30000}", initialDelayString = "${app.cluster.sync-interval-ms:30000}")
+    public void syncActiveClients() {
+        if (enabled) {
+            loadOwnedClients(lastSyncAt.minus(persistInterval));
+        }
+    }
+
+    @EventListener
+    public void onClusterMembershipChanged(ClusterMembershipEvent event) {
+        if (enabled) {
+            int nodes = Math.max(1, event.getLiveNodes().size());
+            if (nodes != nodeCount) {
+                nodeCount = nodes;
+                resetBankRateLimits();
+            }
+            store.execute(() -> loadOwnedClients(Instant.EPOCH));
+        }
+    }
+
+    public long activeClientCount() {
+        return activeClients.estimatedSize();
+    }
+
+    /* Сколько клиентов узел может обновить за интервал при выделенной доле лимита банков */
+    public double capacityPerInterval() {
+        return clusterRefreshesPerSecond / nodeCount * interval.toSeconds();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+        store.shutdownNow();
+        ExecutorFactory.shutdown(workers);
+    }
+
+    private void dispatchDue() {
+        try {
+            warnIfLagging();
+            // Записи сверх свободных обработчиков остаются в очереди и не перекладываются на каждом tick
+            List<ScheduledRefresh> due = new ArrayList<>();
+            queue.drainTo(due, Math.min(maxBatch, Math.max(1, workerPermits.availablePermits())));
+            if (due.isEmpty()) {
+                return;
+            }
+
+            long now = System.nanoTime();
+            due.sort(Comparator
+                    .comparing((ScheduledRefresh refresh) -> isIdle(refresh.client(), now))
+                    .thenComparingLong(refresh -> refresh.client().lastRefreshedNanos));
+
+            for (ScheduledRefresh refresh : due) {
+                ActiveClient client = refresh.client();
+                if (client.removed) {
+                    clearDeferrals(client);
+                    continue;
+                }
+                if (!clusterMembershipService.owns(client.key.clientId())) {
+                    // Клиент остаётся в очереди: после ребалансировки он может вернуться этому узлу
+                    skippedNotOwner.increment();
+                    clearDeferrals(client);
+                    schedule(client, nextDelay(client));
+                    continue;
+                }
+                if (!workerPermits.tryAcquire()) {
+                    deferredNoWorker.increment();
+                    defer(client);
+                    continue;
+                }
+                if (!acquireBankTokens(client.key.bankTypes())) {
+                    workerPermits.release();
+                    deferredRateLimit.increment();
+                    defer(client);
+                    continue;
+                }
+                try {
+                    workers.execute(() -> refresh(client));
+                    clearDeferrals(client);
+                } catch (RuntimeException e) {
+                    workerPermits.release();
+                    defer(client);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Ошибка планировщика обновления клиентов: {}", e.getMessage());
+        }
+    }
+
+    private void refresh(ActiveClient client) {
+        try {
+            aggregationService.refreshAggregation(client.key.clientId(), client.key.bankTypes());
+            refreshSucceeded.increment();
+        } catch (Exception e) {
+            refreshFailed.increment();
+            log.warn("Ошибка фонового обновления клиента {}: {}", client.key.clientId(), e.getMessage());
+        } finally {
+            client.lastRefreshedNanos = System.nanoTime();
+            workerPermits.release();
+            if (!client.removed) {
+                schedule(client, nextDelay(client));
+            }
+        }
+    }
+
+    /* Сохраняет накопленные обращения пачками по PERSIST_BATCH; несохранённая пачка повторится на следующем tick */
+    private void persistPending() {
+        List<ActiveClientEntity> batch = new ArrayList<>(Math.min(pendingPersists.size(), PERSIST_BATCH));
+        Map<AggregationKey, Instant> taken = new HashMap<>();
+        for (Map.Entry<AggregationKey, Instant> pending : pendingPersists.entrySet()) {
+            AggregationKey key = pending.getKey();
+            ActiveClientEntity entity = new ActiveClientEntity();
+            entity.setId(key.asString());
+            entity.setClientId(key.clientId());
+            entity.setBankTypes(key.bankTypes());
+            entity.setLastAccess(pending.getValue());
+            batch.add(entity);
+            taken.put(key, pending.getValue());
+            if (batch.size() == PERSIST_BATCH) {
+                if (!saveBatch(batch, taken)) {
+                    return;
+                }
+                batch.clear();
+                taken.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            saveBatch(batch, taken);
+        }
+    }
+
+    private boolean saveBatch(List<ActiveClientEntity> batch, Map<AggregationKey, Instant> taken) {
+        try {
+            activeClientRepository.saveAll(batch);
+            // Ключ, к которому обратились ещё раз за время записи, остаётся в очереди с новым временем
+            taken.forEach(pendingPersists::remove);
+            return true;
+        } catch (Exception e) {
+            log.warn("Не удалось сохранить {} активных клиентов: {}", batch.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void loadOwnedClients(Instant since) {
+        Instant syncStartedAt = Instant.now();
+        int loaded = 0;
+        try (Stream<ActiveClientEntity> entities = activeClientRepository.findByLastAccessAfter(since)) {
+            for (ActiveClientEntity entity : (Iterable<ActiveClientEntity>) entities::iterator) {
+                if (!clusterMembershipService.owns(entity.getClientId())) {
+                    continue;
+                }
+                AggregationKey key = AggregationKey.of(entity.getClientId(), entity.getBankTypes());
+                if (activeClients.asMap().containsKey(key)) {
+                    continue;
+                }
+                long now = System.nanoTime();
+                ActiveClient client = new ActiveClient(key);
+                client.lastAccessNanos = now - Duration.between(entity.getLastAccess(), syncStartedAt).toNanos();
+                client.lastRefreshedNanos = now - interval.toNanos();
+                client.lastPersistedNanos = now;
+                client.persisted = true;
+                if (activeClients.asMap().putIfAbsent(key, client) == null) {
+                    // Доставшиеся при ребалансировке клиенты распределяются по интервалу, а не обновляются разом
+                    schedule(client, Duration.ofMillis(ThreadLocalRandom.current().nextLong(Math.max(1, interval.toMillis()))));
+                    loaded++;
+                }
+            }
+            lastSyncAt = syncStartedAt;
+        } catch (Exception e) {
+            log.warn("Не удалось загрузить активных клиентов: {}", e.getMessage());
+        }
+        if (loaded > 0) {
+            log.info("Узел {} принял {} активных клиентов", clusterMembershipService.getNodeId(), loaded);
+        }
+    }
+
+    /* Доля узла в лимите кластера; при смене состава корзины создаются заново */
+    private void resetBankRateLimits() {
+        double nodeRate = clusterRefreshesPerSecond / nodeCount;
+        synchronized (bankRateLimits) {
+            for (BankType bankType : BankType.values()) {
+                bankRateLimits.put(bankType, new TokenBucket(nodeRate, Math.max(1, nodeRate)));
+            }
+        }
+    }
+
+    /* Токены берутся, только если они есть у всех нужных банков, чтобы не тратить лимит впустую */
+    private boolean acquireBankTokens(List<BankType> bankTypes) {
+        List<BankType> banks = bankTypes.isEmpty() ? Arrays.asList(BankType.values()) : bankTypes;
+        synchronized (bankRateLimits) {
+            for (BankType bankType : banks) {
+                if (!bankRateLimits.get(bankType).hasToken()) {
+                    return false;
+                }
+            }
+            banks.forEach(bankType -> bankRateLimits.get(bankType).tryAcquire());
+            return true;
+        }
+    }
+
+    /* Экспоненциальная задержка с jitter: tick, 2 tick, 4 tick... но не больше четверти интервала */
+    private void defer(ActiveClient client) {
+        if (client.deferrals++ == 0) {
+            backlog.incrementAndGet();
+        }
+        long ceiling = Math.min(maxDeferDelay.toNanos(), tick.toNanos() << Math.min(client.deferrals - 1, 20));
+        long delay = ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+        queue.add(new ScheduledRefresh(client, System.nanoTime() + delay));
+    }
+
+    private void clearDeferrals(ActiveClient client) {
+        if (client.deferrals > 0) {
+            client.deferrals = 0;
+            backlog.decrementAndGet();
+        }
+    }
+
+    /* Насколько самая просроченная запись очереди отстала от своего срока */
+    private long lagNanos() {
+        ScheduledRefresh head = queue.peek();
+        return head == null ? 0 : Math.max(0, System.nanoTime() - head.dueAtNanos());
+    }
+
+    private void warnIfLagging() {
+        long now = System.nanoTime();
+        long lag = lagNanos();
+        if (lag > interval.toNanos() && now - lastLagWarningNanos > interval.toNanos()) {
+            lastLagWarningNanos = now;
+            log.warn("Фоновое обновление отстаёт на {} с: отложено {} клиентов, активных {}, успевается {} за интервал",
+                    TimeUnit.NANOSECONDS.toSeconds(lag), backlog.get(), activeClients.estimatedSize(), (long) capacityPerInterval());
+        }
+    }
+
+    private Duration nextDelay(ActiveClient client) {
+        Duration base = isIdle(client, System.nanoTime()) ? interval.multipliedBy(idleMultiplier) : interval;
+        double factor = 1 + ThreadLocalRandom.current().nextDouble(-jitter, jitter);
+        return Duration.ofMillis((long) (base.toMillis() * factor));
+    }
+
+    private boolean isIdle(ActiveClient client, long nowNanos) {
+        return nowNanos - client.lastAccessNanos > idleAfter.toNanos();
+    }
+
+    private void schedule(ActiveClient client, Duration delay) {
+        queue.add(new ScheduledRefresh(client, System.nanoTime() + delay.toNanos()));
+    }
+
+    private static final class ActiveClient {
+        private final AggregationKey key;
+        private volatile long lastAccessNanos = System.nanoTime();
+        private volatile long lastRefreshedNanos;
+        private volatile long lastPersistedNanos;
+        private volatile boolean persisted;
+        private volatile boolean removed;
+        /* Сколько раз подряд обновление откладывалось; меняется только потоком tick */
+        private int deferrals;
+
+        private ActiveClient(AggregationKey key) {
+            this.key = key;
+        }
+    }
+
+    private record ScheduledRefresh(ActiveClient client, long dueAtNanos) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAtNanos, ((ScheduledRefresh) other).dueAtNanos);
+        }
+    }
+}
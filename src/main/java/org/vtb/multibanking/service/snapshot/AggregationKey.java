@@ -0,0 +1,24 @@
+package org.vtb.multibanking.service.snapshot;
+
+import org.vtb.multibanking.model.BankType;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/* Клиент и отсортированный набор банков: запросы с одинаковыми банками в разном порядке попадают в один снимок */
+public record AggregationKey(String clientId, List<BankType> bankTypes) {
+
+    public static AggregationKey of(String clientId, List<BankType> bankTypes) {
+        List<BankType> normalized = bankTypes == null ? List.of() : bankTypes.stream()
+                .distinct()
+                .sorted()
+                .toList();
+        return new AggregationKey(clientId, normalized);
+    }
+
+    public String asString() {
+        return clientId + ":" + (bankTypes.isEmpty() ? "ALL" : bankTypes.stream()
+                .map(BankType::name)
+                .collect(Collectors.joining(",")));
+    }
+}
@@ -0,0 +1,8 @@
+package org.vtb.multibanking.service.snapshot;
+
+import org.vtb.multibanking.model.AggregationResult;
+
+import java.time.Instant;
+
+public record AggregationSnapshot(AggregationResult result, Instant fetchedAt) {
+}
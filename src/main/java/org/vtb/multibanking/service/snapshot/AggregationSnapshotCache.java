@@ -0,0 +1,158 @@
+package org.vtb.multibanking.service.snapshot;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.vtb.multibanking.config.ExecutorFactory;
+import org.vtb.multibanking.model.AggregationResult;
+import org.vtb.multibanking.model.events.AccountEvent;
+import org.vtb.multibanking.model.events.TransactionEvent;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/*
+ Снимки AggregationResult по клиенту и набору банков.
+ Свежий снимок (моложе ttl) отдаётся сразу. Устаревший, но моложе ttl + stale-while-revalidate, тоже отдаётся сразу,
+ а в фоне запускается обновление (не больше одного на ключ).
+ Одновременные загрузки по одному ключу объединяются в AggregationService.
+ Частичный результат (какой-то банк не ответил) считается устаревшим сразу после получения.
+ Два уровня: локальный Caffeine и, если включён, общий AggregationSnapshotStore (Redis).
+ */
+@Slf4j
+@Component
+public class AggregationSnapshotCache {
+
+    private final Cache<AggregationKey, AggregationSnapshot> localSnapshots;
+    private final Optional<AggregationSnapshotStore> sharedStore;
+    private final Set<AggregationKey> refreshing = ConcurrentHashMap.newKeySet();
+    private final Executor refreshExecutor;
+    private final Duration ttl;
+    private final Duration staleWhileRevalidate;
+    private final Counter freshHits;
+    private final Counter staleHits;
+    private final Counter misses;
+
+    public AggregationSnapshotCache(ObjectProvider<AggregationSnapshotStore> sharedStore,
+                                    ExecutorFactory executorFactory,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${app.aggregation.cache.ttl:60s}") Duration ttl,
+                                    @Value("${app.aggregation.cache.stale-while-revalidate:10m}") Duration staleWhileRevalidate,
+                                    @Value("${app.aggregation.cache.max-size:10000}") long maxSize) {
+        this.sharedStore = Optional.ofNullable(sharedStore.getIfAvailable());
+        this.refreshExecutor = executorFactory.newExecutor("aggregation-refresh", 2);
+        this.ttl = ttl;
+        this.staleWhileRevalidate = staleWhileRevalidate;
+        this.localSnapshots = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl.plus(staleWhileRevalidate))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, localSnapshots, "aggregation.snapshots");
+        this.freshHits = meterRegistry.counter("aggregation.snapshot.requests", "result", "fresh");
+        this.staleHits = meterRegistry.counter("aggregation.snapshot.requests", "result", "stale");
+        this.misses = meterRegistry.counter("aggregation.snapshot.requests", "result", "miss");
+    }
+
+    public AggregationResult get(AggregationKey key, Supplier<AggregationResult> loader) {
+        AggregationSnapshot snapshot = findSnapshot(key);
+        if (snapshot != null) {
+            Duration age = Duration.between(snapshot.fetchedAt(), Instant.now());
+            if (age.compareTo(ttl) < 0 && !snapshot.result().isPartial()) {
+                freshHits.increment();
+                return snapshot.result();
+            }
+            if (age.compareTo(ttl.plus(staleWhileRevalidate)) < 0) {
+                staleHits.increment();
+                refreshInBackground(key, loader);
+                return snapshot.result();
+            }
+        }
+
+        misses.increment();
+        return load(key, loader);
+    }
+
+    /* Принудительное обновление (автообновление по расписанию), результат сразу попадает в кэш */
+    public AggregationResult refresh(AggregationKey key, Supplier<AggregationResult> loader) {
+        return load(key, loader);
+    }
+
+    public void evictClient(String clientId) {
+        localSnapshots.asMap().keySet().removeIf(key -> key.clientId().equals(clientId));
+        sharedStore.ifPresent(store -> store.evictClient(clientId));
+    }
+
+    @EventListener
+    public void onAccountEvent(AccountEvent event) {
+        evictClient(event.getUserId());
+    }
+
+    @EventListener
+    public void onTransactionEvent(TransactionEvent event) {
+        evictClient(event.getUserId());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ExecutorFactory.shutdown(refreshExecutor);
+    }
+
+    private AggregationSnapshot findSnapshot(AggregationKey key) {
+        AggregationSnapshot snapshot = localSnapshots.getIfPresent(key);
+        if (snapshot == null && sharedStore.isPresent()) {
+            snapshot = sharedStore.get().get(key).orElse(null);
+            if (snapshot != null) {
+                localSnapshots.put(key, snapshot);
+            }
+        }
+        return snapshot;
+    }
+
+    private void refreshInBackground(AggregationKey key, Supplier<AggregationResult> loader) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    load(key, loader);
+                } catch (Exception e) {
+                    log.warn("Ошибка фонового обновления агрегации {}: {}", key.asString(), e.getMessage());
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshing.remove(key);
+            log.warn("Не удалось запустить фоновое обновление агрегации {}: {}", key.asString(), e.getMessage());
+        }
+    }
+
+    private AggregationResult load(AggregationKey key, Supplier<AggregationResult> loader) {
+        AggregationResult result = loader.get();
+        store(key, new AggregationSnapshot(result, Instant.now()));
+        return result;
+    }
+
+    private void store(AggregationKey key, AggregationSnapshot snapshot) {
+        if (!snapshot.result().isSuccess()) {
+            return;
+        }
+        localSnapshots.put(key, snapshot);
+        sharedStore.ifPresent(store -> store.put(key, snapshot, ttl.plus(staleWhileRevalidate)));
+    }
+}
@@ -0,0 +1,14 @@
+package org.vtb.multibanking.service.snapshot;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/* Общий для всех экземпляров приложения уровень кэша снимков (Redis); в тестах заменяется реализацией в памяти */
+public interface AggregationSnapshotStore {
+
+    Optional<AggregationSnapshot> get(AggregationKey key);
+
+    void put(AggregationKey key, AggregationSnapshot snapshot, Duration ttl);
+
+    void evictClient(String clientId);
+}
@@ -0,0 +1,94 @@
+package org.vtb.multibanking.service.snapshot;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.aggregation.cache.redis.enabled", havingValue = "true")
+public class RedisAggregationSnapshotStore implements AggregationSnapshotStore {
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final String keyPrefix;
+
+    public RedisAggregationSnapshotStore(StringRedisTemplate redisTemplate, ObjectMapper objectMapper,
+                                         @Value("${app.aggregation.cache.redis.key-prefix:aggregation:}") String keyPrefix) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.keyPrefix = keyPrefix;
+    }
+
+    @Override
+    public Optional<AggregationSnapshot> get(AggregationKey key) {
+        try {
+            String value = redisTemplate.opsForValue().get(redisKey(key));
+            return value == null ? Optional.empty() : Optional.of(objectMapper.readValue(value, AggregationSnapshot.class));
+        } catch (Exception e) {
+            log.warn("Ошибка чтения снимка агрегации {} из Redis: {}", key.asString(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /* Ключ снимка добавляется в индекс клиента, чтобы сброс по событию не сканировал всё пространство ключей Redis */
+    @Override
+    public void put(AggregationKey key, AggregationSnapshot snapshot, Duration ttl) {
+        try {
+            String redisKey = redisKey(key);
+            String indexKey = indexKey(key.clientId());
+            String value = objectMapper.writeValueAsString(snapshot);
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) {
+                    operations.opsForValue().set(redisKey, value, ttl);
+                    operations.opsForSet().add(indexKey, redisKey);
+                    operations.expire(indexKey, ttl);
+                    return null;
+                }
+            });
+        } catch (JsonProcessingException e) {
+            log.warn("Ошибка сериализации снимка агрегации {}: {}", key.asString(), e.getMessage());
+        } catch (Exception e) {
+            log.warn("Ошибка записи снимка агрегации {} в Redis: {}", key.asString(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void evictClient(String clientId) {
+        String indexKey = indexKey(clientId);
+        try {
+            Set<String> keys = redisTemplate.opsForSet().members(indexKey);
+            List<String> toDelete = new ArrayList<>();
+            if (keys != null) {
+                toDelete.addAll(keys);
+            }
+            toDelete.add(indexKey);
+            redisTemplate.delete(toDelete);
+        } catch (Exception e) {
+            log.warn("Ошибка удаления снимков клиента {} из Redis: {}", clientId, e.getMessage());
+        }
+    }
+
+    private String redisKey(AggregationKey key) {
+        return keyPrefix + key.asString();
+    }
+
+    /* Суффикс #keys не совпадает ни с одним набором банков, поэтому индекс не пересекается с ключами снимков */
+    private String indexKey(String clientId) {
+        return keyPrefix + clientId + ":#keys";
+    }
+}
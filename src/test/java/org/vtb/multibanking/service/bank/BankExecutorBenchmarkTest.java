@@ -0,0 +1,196 @@
+package org.vtb.multibanking.service.bank;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.mock.env.MockEnvironment;
+import org.vtb.multibanking.config.BankConfig;
+import org.vtb.multibanking.config.ExecutorFactory;
+import org.vtb.multibanking.model.Account;
+import org.vtb.multibanking.model.BankType;
+import org.vtb.multibanking.service.ConsentService;
+import org.vtb.multibanking.service.TransactionSyncService;
+import org.vtb.multibanking.service.bank.banks.VBankClient;
+import org.vtb.multibanking.service.bank.resilience.BankCallPolicy;
+import org.vtb.multibanking.service.bank.resilience.BankRequestHedger;
+import org.vtb.multibanking.service.bank.resilience.BankResilienceRegistry;
+import org.vtb.multibanking.service.integration.BankEventPublisher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/*
+ Сравнение пропускной способности агрегации на фиксированных пулах и на виртуальных потоках против заглушки банка.
+ Каждая агрегация - настоящий VBankClient.fetchAccounts: список счетов, затем балансы и транзакции всех счетов
+ через пул банка из ExecutorFactory с лимитом account-fetch-concurrency. Согласия и хранилище транзакций -
+ заглушки без Mongo. Запуск (виртуальные потоки - только на Java 21, mvn -Pjava21):
+ mvn test -Dbenchmark=true -Dtest=BankExecutorBenchmarkTest [-Dbenchmark.clients=500 -Dbenchmark.latency-ms=50]
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class BankExecutorBenchmarkTest {
+
+    private static final int CLIENTS = Integer.getInteger("benchmark.clients", 500);
+    private static final int ACCOUNTS = Integer.getInteger("benchmark.accounts", 5);
+    private static final long LATENCY_MS = Long.getLong("benchmark.latency-ms", 50);
+    private static final int AGGREGATION_POOL = Integer.getInteger("benchmark.aggregation-pool", 32);
+    private static final int ACCOUNT_FETCH_CONCURRENCY = Integer.getInteger("benchmark.account-fetch-concurrency", 4);
+
+    private static final BankJsonReader JSON_READER = new BankJsonReader(new ObjectMapper());
+    private static final String STUB_CONSENT = "consent-benchmark";
+
+    private static StubBankServer stubBank;
+
+    @BeforeAll
+    static void startStubBank() throws Exception {
+        stubBank = new StubBankServer(LATENCY_MS, ACCOUNTS);
+    }
+
+    @AfterAll
+    static void stopStubBank() {
+        stubBank.close();
+    }
+
+    @Test
+    void fixedThreadPools() throws Exception {
+        run("fixed", false);
+    }
+
+    @Test
+    void virtualThreads() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "Виртуальные потоки доступны только на Java 21+");
+        run("virtual", true);
+    }
+
+    private void run(String mode, boolean virtualThreads) throws Exception {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("spring.threads.virtual.enabled", String.valueOf(virtualThreads));
+        ExecutorFactory executorFactory = new ExecutorFactory(environment);
+        BankConfig bankConfig = newBankConfig();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        BankHttpTransport transport = newTransport(bankConfig, meterRegistry);
+        BankTokenManagerFactory tokenManagerFactory = new BankTokenManagerFactory(bankConfig, meterRegistry);
+        VBankClient bankClient = new VBankClient(bankConfig, transport, executorFactory, tokenManagerFactory,
+                consentService(), mock(ConsentApprovalPoller.class), transactionSyncService(), mock(BankEventPublisher.class));
+
+        Executor aggregationExecutor = executorFactory.newExecutor("bench-aggregation", AGGREGATION_POOL);
+        try {
+            // Прогрев соединений, токена и JIT
+            measure(bankClient, aggregationExecutor, Math.min(CLIENTS, 50));
+            long requestsBefore = stubBank.getRequests();
+            long[] latencies = measure(bankClient, aggregationExecutor, CLIENTS);
+
+            long totalNanos = latencies[latencies.length - 1];
+            long[] sorted = Arrays.copyOf(latencies, latencies.length - 1);
+            Arrays.sort(sorted);
+            log.info("{}: {} агрегаций за {} мс, {} агрегаций/с, p50 {} мс, p99 {} мс, запросов к банку {}",
+                    mode, CLIENTS, TimeUnit.NANOSECONDS.toMillis(totalNanos),
+                    String.format("%.1f", CLIENTS / (totalNanos / 1e9)),
+                    TimeUnit.NANOSECONDS.toMillis(sorted[sorted.length / 2]),
+                    TimeUnit.NANOSECONDS.toMillis(sorted[(int) (sorted.length * 0.99)]),
+                    stubBank.getRequests() - requestsBefore);
+            assertEquals(CLIENTS, sorted.length);
+            // Список счетов, затем баланс и одна страница транзакций каждого счёта
+            assertEquals((long) CLIENTS * (1 + 2L * ACCOUNTS), stubBank.getRequests() - requestsBefore);
+        } finally {
+            ExecutorFactory.shutdown(aggregationExecutor);
+            bankClient.shutdown();
+            tokenManagerFactory.shutdown();
+            transport.shutdown();
+        }
+    }
+
+    /* Задержки агрегаций в наносекундах; последний элемент - общее время прогона */
+    private long[] measure(VBankClient bankClient, Executor aggregationExecutor, int clients) {
+        long startedAt = System.nanoTime();
+        List<CompletableFuture<Long>> aggregations = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            BankClient userClient = bankClient.forUser("client-" + i);
+            aggregations.add(CompletableFuture.supplyAsync(() -> {
+                assertAggregated(fetchAccounts(userClient));
+                return System.nanoTime() - startedAt;
+            }, aggregationExecutor));
+        }
+
+        long[] result = new long[clients + 1];
+        for (int i = 0; i < clients; i++) {
+            result[i] = aggregations.get(i).join();
+        }
+        result[clients] = System.nanoTime() - startedAt;
+        return result;
+    }
+
+    private static List<Account> fetchAccounts(BankClient bankClient) {
+        try {
+            return bankClient.fetchAccounts();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void assertAggregated(List<Account> accounts) {
+        assertEquals(ACCOUNTS, accounts.size());
+        for (Account account : accounts) {
+            assertTrue(account.getFetchErrors().isEmpty(), () -> String.join("; ", account.getFetchErrors()));
+            assertEquals(0, account.getCurrentBalance().compareTo(StubBankServer.BALANCE));
+        }
+    }
+
+    private static ConsentService consentService() {
+        ConsentService consentService = mock(ConsentService.class);
+        when(consentService.getActiveConsentId(any(BankType.class), anyString())).thenReturn(Optional.of(STUB_CONSENT));
+        return consentService;
+    }
+
+    /* Хранилище транзакций без Mongo: одна страница с начала истории, дельта возвращается как есть */
+    private static TransactionSyncService transactionSyncService() {
+        TransactionSyncService transactionSyncService = mock(TransactionSyncService.class);
+        when(transactionSyncService.getWatermark(any(), anyString(), anyString())).thenReturn(Optional.empty());
+        when(transactionSyncService.getPageSize()).thenReturn(100);
+        when(transactionSyncService.getMaxPages()).thenReturn(1);
+        when(transactionSyncService.saveDelta(any(), anyString(), anyString(), any()))
+                .thenAnswer(invocation -> invocation.getArgument(3));
+        return transactionSyncService;
+    }
+
+    private static BankConfig newBankConfig() {
+        BankConfig bankConfig = new BankConfig();
+        BankConfig.BankApiConfig api = new BankConfig.BankApiConfig();
+        api.setBaseUrl(stubBank.getBaseUrl());
+        api.setClientId("team-benchmark");
+        api.setClientSecret("secret");
+        api.setAccountFetchConcurrency(ACCOUNT_FETCH_CONCURRENCY);
+        api.setMaxConnections(AGGREGATION_POOL * ACCOUNT_FETCH_CONCURRENCY);
+        // VBankClient берёт идентификатор пользователя из настроек abank
+        bankConfig.setApis(Map.of("vbank", api, "abank", api));
+        bankConfig.getHttp().setMaxTotalConnections(AGGREGATION_POOL * ACCOUNT_FETCH_CONCURRENCY);
+        // Лимиты частоты в прогоне не участвуют, измеряются только пулы
+        bankConfig.getRateLimit().setRequestsPerSecond(1_000_000);
+        bankConfig.getRateLimit().setBurst(1_000_000);
+        return bankConfig;
+    }
+
+    private static BankHttpTransport newTransport(BankConfig bankConfig, SimpleMeterRegistry meterRegistry) {
+        return new BankHttpTransport(bankConfig, meterRegistry, JSON_READER,
+                new BankRequestHedger(bankConfig, meterRegistry),
+                new BankCallPolicy(bankConfig, meterRegistry), new BankResilienceRegistry(bankConfig, meterRegistry));
+    }
+}
@@ -0,0 +1,95 @@
+package org.vtb.multibanking.service.bank;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ Заглушка банка для нагрузочных проверок: отвечает на /accounts, /accounts/{id}/balances и
+ /accounts/{id}/transactions в формате Open Banking с фиксированной задержкой. Токен из /auth/bank-token
+ выдаётся сразу и в getRequests не учитывается.
+ */
+public class StubBankServer implements AutoCloseable {
+
+    public static final BigDecimal BALANCE = new BigDecimal("1000.00");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long latencyMillis;
+    private final int accountsPerClient;
+    private final AtomicLong requests = new AtomicLong();
+
+    public StubBankServer(long latencyMillis, int accountsPerClient) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.accountsPerClient = accountsPerClient;
+        // Без TCP_NODELAY заголовки и тело ответа уходят с задержкой ACK, и она скрывает задержку банка
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        // Задержка не должна упираться в потоки заглушки - на каждый запрос свой поток
+        this.executor = Executors.newCachedThreadPool();
+        this.server.setExecutor(executor);
+        this.server.createContext("/accounts", this::handle);
+        this.server.createContext("/auth", exchange ->
+                respond(exchange, "{\"access_token\":\"stub-token\",\"expires_in\":3600}"));
+        this.server.start();
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        String path = exchange.getRequestURI().getPath();
+        String body;
+        if (path.endsWith("/balances")) {
+            body = "{\"data\":{\"balance\":[{\"accountId\":\"a\",\"type\":\"InterimBooked\","
+                    + "\"amount\":{\"amount\":\"" + BALANCE.toPlainString() + "\",\"currency\":\"RUB\"}}]}}";
+        } else if (path.endsWith("/transactions")) {
+            body = "{\"data\":{\"transaction\":[]}}";
+        } else {
+            StringBuilder accounts = new StringBuilder("{\"data\":{\"account\":[");
+            for (int i = 0; i < accountsPerClient; i++) {
+                if (i > 0) {
+                    accounts.append(',');
+                }
+                accounts.append("{\"accountId\":\"acc-").append(i).append("\",\"status\":\"Enabled\",\"currency\":\"RUB\"}");
+            }
+            body = accounts.append("]}}").toString();
+        }
+        respond(exchange, body);
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package org.vtb.multibanking.service.cluster;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.vtb.multibanking.model.events.ClusterMembershipEvent;
+import org.vtb.multibanking.repository.ClusterNodeRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.abort;
+
+/*
+ Rendezvous-распределение клиентов между несколькими узлами на встроенной Mongo:
+ каждый клиент принадлежит ровно одному узлу, доли узлов близки, при уходе и входе узла
+ переезжают только клиенты этого узла.
+ */
+class ClusterMembershipServiceTest {
+
+    private static final int CLIENTS = 3000;
+
+    private static TransitionWalker.ReachedState<RunningMongodProcess> mongod;
+    private static MongoClient mongoClient;
+    private static ClusterNodeRepository clusterNodeRepository;
+
+    private final List<ClusterMembershipEvent> events = new CopyOnWriteArrayList<>();
+
+    @BeforeAll
+    static void startMongo() {
+        try {
+            mongod = Mongod.instance().start(Version.Main.V6_0);
+        } catch (RuntimeException e) {
+            // Дистрибутив mongod скачивается с fastdl.mongodb.org; без доступа к нему тест пропускается, а не падает
+            abort("Встроенная Mongo не запустилась: " + e.getMessage());
+        }
+        mongoClient = MongoClients.create("mongodb://" + mongod.current().getServerAddress());
+        MongoTemplate mongoTemplate = new MongoTemplate(mongoClient, "cluster-test");
+        clusterNodeRepository = new MongoRepositoryFactory(mongoTemplate).getRepository(ClusterNodeRepository.class);
+    }
+
+    @AfterAll
+    static void stopMongo() {
+        if (mongoClient != null) {
+            mongoClient.close();
+        }
+        if (mongod != null) {
+            mongod.close();
+        }
+    }
+
+    @BeforeEach
+    void clearNodes() {
+        clusterNodeRepository.deleteAll();
+        events.clear();
+    }
+
+    @Test
+    void clientsAreSplitBetweenLiveNodes() {
+        List<ClusterMembershipService> nodes = List.of(node("node-a"), node("node-b"), node("node-c"));
+        heartbeat(nodes);
+
+        for (ClusterMembershipService node : nodes) {
+            assertEquals(List.of("node-a", "node-b", "node-c"), node.getLiveNodes());
+        }
+        Map<String, String> owners = owners(nodes);
+        assertEquals(CLIENTS, owners.size());
+        for (ClusterMembershipService node : nodes) {
+            long owned = owners.values().stream().filter(node.getNodeId()::equals).count();
+            assertTrue(owned > CLIENTS / 4 && owned < CLIENTS / 2,
+                    "Узлу " + node.getNodeId() + " досталось " + owned + " из " + CLIENTS);
+        }
+    }
+
+    @Test
+    void onlyClientsOfChangedNodeMove() {
+        ClusterMembershipService nodeA = node("node-a");
+        ClusterMembershipService nodeB = node("node-b");
+        ClusterMembershipService nodeC = node("node-c");
+        heartbeat(List.of(nodeA, nodeB, nodeC));
+        Map<String, String> before = owners(List.of(nodeA, nodeB, nodeC));
+
+        events.clear();
+        nodeC.leave();
+        heartbeat(List.of(nodeA, nodeB));
+        assertEquals(List.of("node-a", "node-b"), nodeA.getLiveNodes());
+        assertEquals(2, events.size());
+
+        Map<String, String> afterLeave = owners(List.of(nodeA, nodeB));
+        assertEquals(CLIENTS, afterLeave.size());
+        before.forEach((clientId, owner) -> {
+            if (!owner.equals("node-c")) {
+                assertEquals(owner, afterLeave.get(clientId), "Клиент " + clientId + " переехал без причины");
+            }
+        });
+
+        ClusterMembershipService nodeD = node("node-d");
+        heartbeat(List.of(nodeA, nodeB, nodeD));
+        Map<String, String> afterJoin = owners(List.of(nodeA, nodeB, nodeD));
+        assertEquals(CLIENTS, afterJoin.size());
+        afterLeave.forEach((clientId, owner) -> {
+            String newOwner = afterJoin.get(clientId);
+            assertTrue(newOwner.equals(owner) || newOwner.equals("node-d"),
+                    "Клиент " + clientId + " переехал на " + newOwner + ", а не на новый узел");
+        });
+    }
+
+    private ClusterMembershipService node(String nodeId) {
+        return new ClusterMembershipService(clusterNodeRepository,
+                event -> events.add((ClusterMembershipEvent) event), nodeId, Duration.ofSeconds(30));
+    }
+
+    /* Второй проход нужен, чтобы узлы, записавшие heartbeat первыми, увидели остальных */
+    private static void heartbeat(List<ClusterMembershipService> nodes) {
+        nodes.forEach(ClusterMembershipService::heartbeat);
+        nodes.forEach(ClusterMembershipService::heartbeat);
+    }
+
+    /* Владелец каждого клиента; проверяет, что клиент не достался двум узлам сразу */
+    private static Map<String, String> owners(List<ClusterMembershipService> nodes) {
+        Map<String, String> owners = new HashMap<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            String clientId = "client-" + i;
+            List<String> claimedBy = new ArrayList<>();
+            for (ClusterMembershipService node : nodes) {
+                if (node.owns(clientId)) {
+                    claimedBy.add(node.getNodeId());
+                }
+            }
+            assertEquals(1, claimedBy.size(), "Клиента " + clientId + " взяли узлы " + claimedBy);
+            owners.put(clientId, claimedBy.get(0));
+        }
+        return owners;
+    }
+}
@@ -0,0 +1,87 @@
+package org.vtb.multibanking.service.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ Свойства ClusterMembershipService.ownerOf без Mongo: владелец однозначен и не зависит от порядка узлов,
+ доли узлов близки, при уходе узла переезжают только его клиенты, при входе - только на новый узел.
+ Те же свойства на живых узлах со встроенной Mongo проверяет ClusterMembershipServiceTest.
+ */
+class RendezvousOwnershipTest {
+
+    private static final int CLIENTS = 10_000;
+    private static final List<String> NODES = List.of("node-a", "node-b", "node-c");
+
+    @Test
+    void everyClientHasOneOwnerRegardlessOfNodeOrder() {
+        List<String> reversed = new ArrayList<>(NODES);
+        Collections.reverse(reversed);
+
+        for (int i = 0; i < CLIENTS; i++) {
+            String clientId = "client-" + i;
+            String owner = ClusterMembershipService.ownerOf(clientId, NODES);
+            assertTrue(NODES.contains(owner), "Клиенту " + clientId + " достался неизвестный узел " + owner);
+            assertEquals(owner, ClusterMembershipService.ownerOf(clientId, reversed));
+        }
+    }
+
+    @Test
+    void clientsAreSplitEvenly() {
+        Map<String, Integer> owned = new HashMap<>();
+        owners(NODES).values().forEach(owner -> owned.merge(owner, 1, Integer::sum));
+
+        for (String node : NODES) {
+            int count = owned.getOrDefault(node, 0);
+            // Ожидается треть клиентов; допуск - 10% от неё
+            assertTrue(Math.abs(count - CLIENTS / 3) < CLIENTS / 30,
+                    "Узлу " + node + " досталось " + count + " из " + CLIENTS);
+        }
+    }
+
+    @Test
+    void onlyClientsOfLeavingNodeMove() {
+        Map<String, String> before = owners(NODES);
+        Map<String, String> after = owners(List.of("node-a", "node-b"));
+
+        before.forEach((clientId, owner) -> {
+            if (!owner.equals("node-c")) {
+                assertEquals(owner, after.get(clientId), "Клиент " + clientId + " переехал без причины");
+            }
+        });
+    }
+
+    @Test
+    void joiningNodeTakesOnlyItsShare() {
+        Map<String, String> before = owners(NODES);
+        Map<String, String> after = owners(List.of("node-a", "node-b", "node-c", "node-d"));
+
+        int moved = 0;
+        for (Map.Entry<String, String> entry : before.entrySet()) {
+            String newOwner = after.get(entry.getKey());
+            if (!newOwner.equals(entry.getValue())) {
+                assertEquals("node-d", newOwner, "Клиент " + entry.getKey() + " переехал не на новый узел");
+                moved++;
+            }
+        }
+        // Новый узел забирает около четверти клиентов, а не перетасовывает всех
+        assertTrue(Math.abs(moved - CLIENTS / 4) < CLIENTS / 40, "Переехало " + moved + " из " + CLIENTS);
+    }
+
+    private static Map<String, String> owners(List<String> nodes) {
+        Map<String, String> owners = new HashMap<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            String clientId = "client-" + i;
+            owners.put(clientId, ClusterMembershipService.ownerOf(clientId, nodes));
+        }
+        return owners;
+    }
+}